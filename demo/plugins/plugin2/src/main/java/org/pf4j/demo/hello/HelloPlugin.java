@@ -49,6 +49,7 @@ public class HelloPlugin extends SpringPlugin {
     protected ApplicationContext createApplicationContext() {
         AnnotationConfigApplicationContext applicationContext = new AnnotationConfigApplicationContext();
         applicationContext.setClassLoader(getWrapper().getPluginClassLoader());
+        applicationContext.setApplicationStartup(getApplicationStartup());
         applicationContext.register(SpringConfiguration.class);
         applicationContext.refresh();
 
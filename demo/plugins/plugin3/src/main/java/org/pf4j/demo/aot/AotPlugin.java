@@ -0,0 +1,64 @@
+/*
+ * Copyright (C) 2012-present the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.pf4j.demo.aot;
+
+import org.pf4j.Extension;
+import org.pf4j.PluginWrapper;
+import org.pf4j.demo.api.Greeting;
+import org.pf4j.spring.AotSpringPlugin;
+
+/**
+ * A plugin whose application context is created from the initializer generated at build time (see {@code pom.xml}).
+ */
+public class AotPlugin extends AotSpringPlugin {
+
+    public AotPlugin(PluginWrapper wrapper) {
+        super(wrapper);
+    }
+
+    @Override
+    public void start() {
+        System.out.println("AotPlugin.start()");
+    }
+
+    @Override
+    public void stop() {
+        System.out.println("AotPlugin.stop()");
+        super.stop(); // to close applicationContext
+    }
+
+    @Override
+    protected Class<?>[] getConfigurationClasses() {
+        return new Class<?>[] { AotConfiguration.class };
+    }
+
+    @Extension(ordinal=2)
+    public static class AotGreeting implements Greeting {
+
+        private final String greeting;
+
+        public AotGreeting(final String greeting) {
+            this.greeting = greeting;
+        }
+
+        @Override
+        public String getGreeting() {
+            return greeting;
+        }
+
+    }
+
+}
@@ -0,0 +1,152 @@
+/*
+ * Copyright (C) 2012-present the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.pf4j.spring.aot;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.context.aot.ContextAotProcessor;
+import org.springframework.context.annotation.AnnotationConfigApplicationContext;
+import org.springframework.context.support.GenericApplicationContext;
+import org.springframework.javapoet.ClassName;
+
+import javax.tools.JavaCompiler;
+import javax.tools.ToolProvider;
+import java.io.File;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardCopyOption;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.stream.Collectors;
+import java.util.stream.Stream;
+
+/**
+ * Processes ahead-of-time (Spring AOT) the application context of a plugin, made of the given configuration classes,
+ * and generates an {@code ApplicationContextInitializer} named after the first configuration class
+ * ({@code <configuration class>__ApplicationContextInitializer}), used at runtime by {@code AotSpringPlugin}.
+ * <p>
+ * The generated sources are compiled and, with the generated classes (for example the proxies of the configuration
+ * classes) and resources, are copied in the output directory (the classes directory of the plugin).
+ * <p>
+ * Run it after the compilation of the plugin (for example with {@code exec-maven-plugin} in the {@code process-classes} phase),
+ * with the compile classpath of the plugin:
+ * <pre>
+ * java -cp &lt;classpath&gt; org.pf4j.spring.aot.PluginAotProcessor &lt;output dir&gt; &lt;work dir&gt; &lt;plugin id&gt; &lt;configuration class&gt;...
+ * </pre>
+ * The application context is processed without the host application context (its parent at runtime), so the conditions
+ * of the configuration classes that depend on the beans or the environment of the host are not evaluated as at runtime.
+ */
+public class PluginAotProcessor extends ContextAotProcessor {
+
+    private static final Logger log = LoggerFactory.getLogger(PluginAotProcessor.class);
+
+    private final Class<?>[] configurationClasses;
+
+    public PluginAotProcessor(Class<?>[] configurationClasses, Settings settings) {
+        super(configurationClasses[0], settings);
+
+        this.configurationClasses = configurationClasses;
+    }
+
+    @Override
+    protected GenericApplicationContext prepareApplicationContext(Class<?> applicationClass) {
+        AnnotationConfigApplicationContext applicationContext = new AnnotationConfigApplicationContext();
+        applicationContext.register(configurationClasses);
+
+        return applicationContext;
+    }
+
+    public static void main(String[] args) throws ClassNotFoundException {
+        if (args.length < 4) {
+            throw new IllegalArgumentException("Usage: PluginAotProcessor <output dir> <work dir> <plugin id> <configuration class>...");
+        }
+
+        Path outputDir = Paths.get(args[0]);
+        Path workDir = Paths.get(args[1]);
+        String pluginId = args[2];
+        ClassLoader classLoader = Thread.currentThread().getContextClassLoader();
+        Class<?>[] configurationClasses = new Class<?>[args.length - 3];
+        for (int i = 3; i < args.length; i++) {
+            configurationClasses[i - 3] = Class.forName(args[i], false, classLoader);
+        }
+
+        Settings settings = Settings.builder()
+            .sourceOutput(workDir.resolve("sources"))
+            .resourceOutput(workDir.resolve("resources"))
+            .classOutput(workDir.resolve("classes"))
+            .groupId("org.pf4j.plugins")
+            .artifactId(pluginId)
+            .build();
+        ClassName initializer = new PluginAotProcessor(configurationClasses, settings).process();
+        log.info("Generated '{}' for plugin '{}'", initializer.reflectionName(), pluginId);
+
+        compile(settings.getSourceOutput(), settings.getClassOutput(), workDir.resolve("compiled"));
+        copy(settings.getClassOutput(), outputDir);
+        copy(workDir.resolve("compiled"), outputDir);
+        copy(settings.getResourceOutput(), outputDir);
+    }
+
+    private static void compile(Path sourceDir, Path generatedClassesDir, Path classesDir) {
+        JavaCompiler compiler = ToolProvider.getSystemJavaCompiler();
+        if (compiler == null) {
+            throw new IllegalStateException("A JDK is required to compile the generated sources");
+        }
+
+        List<String> arguments = new ArrayList<>();
+        arguments.add("-proc:none");
+        arguments.add("-parameters");
+        arguments.add("-classpath");
+        arguments.add(System.getProperty("java.class.path") + File.pathSeparator + generatedClassesDir);
+        arguments.add("-d");
+        arguments.add(classesDir.toString());
+        arguments.addAll(listFiles(sourceDir).stream()
+            .filter(file -> file.toString().endsWith(".java"))
+            .map(Path::toString)
+            .collect(Collectors.toList()));
+        if (compiler.run(null, null, null, arguments.toArray(new String[0])) != 0) {
+            throw new IllegalStateException("Cannot compile the generated sources " + Arrays.toString(arguments.toArray()));
+        }
+    }
+
+    private static void copy(Path sourceDir, Path targetDir) {
+        for (Path file : listFiles(sourceDir)) {
+            Path target = targetDir.resolve(sourceDir.relativize(file).toString());
+            try {
+                Files.createDirectories(target.getParent());
+                Files.copy(file, target, StandardCopyOption.REPLACE_EXISTING);
+            } catch (IOException e) {
+                throw new UncheckedIOException(e);
+            }
+        }
+    }
+
+    private static List<Path> listFiles(Path dir) {
+        if (!Files.isDirectory(dir)) {
+            return new ArrayList<>();
+        }
+
+        try (Stream<Path> paths = Files.walk(dir)) {
+            return paths.filter(Files::isRegularFile).collect(Collectors.toList());
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+
+}
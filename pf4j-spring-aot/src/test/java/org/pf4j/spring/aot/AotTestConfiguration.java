@@ -0,0 +1,33 @@
+/*
+ * Copyright (C) 2012-present the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.pf4j.spring.aot;
+
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+
+/**
+ * The configuration of a plugin, processed ahead-of-time by {@link PluginAotProcessorTest}.
+ * Its bean depends on a bean of the host application context, the parent of the plugin context.
+ */
+@Configuration
+public class AotTestConfiguration {
+
+    @Bean
+    public StringBuilder greeting(String hostName) {
+        return new StringBuilder("Hello ").append(hostName);
+    }
+
+}
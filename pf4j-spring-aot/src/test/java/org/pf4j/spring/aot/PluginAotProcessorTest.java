@@ -0,0 +1,72 @@
+/*
+ * Copyright (C) 2012-present the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.pf4j.spring.aot;
+
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+import org.pf4j.spring.AotSpringPlugin;
+import org.springframework.beans.BeanUtils;
+import org.springframework.context.ApplicationContextInitializer;
+import org.springframework.context.support.GenericApplicationContext;
+
+import java.net.URL;
+import java.net.URLClassLoader;
+import java.nio.file.Files;
+import java.nio.file.Path;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+public class PluginAotProcessorTest {
+
+    @Rule
+    public TemporaryFolder folder = new TemporaryFolder();
+
+    @Test
+    @SuppressWarnings("unchecked")
+    public void generatedInitializerCreatesTheApplicationContext() throws Exception {
+        Path outputDir = folder.newFolder("classes").toPath();
+        Path workDir = folder.newFolder("spring-aot").toPath();
+        String initializerClassName = AotTestConfiguration.class.getName() + AotSpringPlugin.INITIALIZER_SUFFIX;
+
+        PluginAotProcessor.main(new String[] { outputDir.toString(), workDir.toString(), "test-plugin", AotTestConfiguration.class.getName() });
+
+        assertTrue(Files.isRegularFile(outputDir.resolve(initializerClassName.replace('.', '/') + ".class")));
+
+        GenericApplicationContext hostApplicationContext = new GenericApplicationContext();
+        hostApplicationContext.registerBean("hostName", String.class, () -> "host");
+        hostApplicationContext.refresh();
+        // the generated classes are loaded as from the classes directory of a plugin
+        try (URLClassLoader pluginClassLoader = new URLClassLoader(new URL[] { outputDir.toUri().toURL() }, getClass().getClassLoader());
+             GenericApplicationContext applicationContext = new GenericApplicationContext()) {
+            applicationContext.setParent(hostApplicationContext);
+            applicationContext.setClassLoader(pluginClassLoader);
+            ApplicationContextInitializer<GenericApplicationContext> initializer = (ApplicationContextInitializer<GenericApplicationContext>)
+                BeanUtils.instantiateClass(pluginClassLoader.loadClass(initializerClassName));
+            initializer.initialize(applicationContext);
+            applicationContext.refresh();
+
+            assertEquals("Hello host", applicationContext.getBean("greeting").toString());
+            // the configuration classes are not parsed at runtime
+            assertFalse(applicationContext.containsBeanDefinition("org.springframework.context.annotation.internalConfigurationAnnotationProcessor"));
+        } finally {
+            hostApplicationContext.close();
+        }
+    }
+
+}
@@ -0,0 +1,109 @@
+/*
+ * Copyright (C) 2012-present the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.pf4j.spring.benchmarks;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Threads;
+import org.openjdk.jmh.annotations.Warmup;
+import org.pf4j.ExtensionFactory;
+import org.pf4j.spring.PrototypeSpringExtensionFactory;
+import org.pf4j.spring.SingletonSpringExtensionFactory;
+import org.pf4j.spring.SpringExtensionFactory;
+import org.pf4j.spring.SpringPluginManager;
+import org.springframework.context.annotation.AnnotationConfigApplicationContext;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Measures the creation of a plugin extension by the extension factories,
+ * with and without autowiring, from one and from more threads.
+ */
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@State(Scope.Benchmark)
+public class ExtensionFactoryBenchmark {
+
+    @Param({"spring", "prototype", "singleton"})
+    public String factory;
+
+    @Param({"true", "false"})
+    public boolean autowire;
+
+    private SyntheticPlugins syntheticPlugins;
+    private SpringPluginManager pluginManager;
+    private AnnotationConfigApplicationContext applicationContext;
+    private ExtensionFactory extensionFactory;
+    private Class<?> extensionClass;
+
+    @Setup
+    public void setUp() throws ClassNotFoundException {
+        syntheticPlugins = SyntheticPlugins.generate(1, 1);
+        pluginManager = new SpringPluginManager(syntheticPlugins.getPluginsRoot());
+        applicationContext = new AnnotationConfigApplicationContext();
+        applicationContext.registerBean("pluginManager", SpringPluginManager.class, () -> pluginManager);
+        applicationContext.refresh();
+
+        extensionFactory = createExtensionFactory();
+        extensionClass = pluginManager.getPluginClassLoader(SyntheticPlugins.pluginId(0))
+            .loadClass(SyntheticPlugins.extensionClassName(0, 0));
+    }
+
+    @TearDown
+    public void tearDown() {
+        pluginManager.stopPlugins();
+        pluginManager.unloadPlugins();
+        applicationContext.close();
+        syntheticPlugins.delete();
+    }
+
+    @Benchmark
+    public Object create() {
+        return extensionFactory.create(extensionClass);
+    }
+
+    @Benchmark
+    @Threads(4)
+    public Object createConcurrently() {
+        return extensionFactory.create(extensionClass);
+    }
+
+    private ExtensionFactory createExtensionFactory() {
+        switch (factory) {
+            case "spring":
+                return new SpringExtensionFactory(pluginManager, autowire);
+            case "prototype":
+                return new PrototypeSpringExtensionFactory(pluginManager, autowire);
+            case "singleton":
+                return new SingletonSpringExtensionFactory(pluginManager, autowire);
+            default:
+                throw new IllegalArgumentException("Unknown factory '" + factory + "'");
+        }
+    }
+
+}
@@ -0,0 +1,100 @@
+/*
+ * Copyright (C) 2012-present the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.pf4j.spring.benchmarks;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Threads;
+import org.openjdk.jmh.annotations.Warmup;
+import org.pf4j.ExtensionFactory;
+import org.pf4j.spring.SingletonSpringExtensionFactory;
+import org.pf4j.spring.SpringPluginManager;
+import org.springframework.context.annotation.AnnotationConfigApplicationContext;
+
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Measures the lookup of the extensions of an extension point ({@code pluginManager.getExtensions(Class)}),
+ * with and without the extensions cache, from one and from more threads.
+ */
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@State(Scope.Benchmark)
+public class GetExtensionsBenchmark {
+
+    @Param({"10"})
+    public int plugins;
+
+    @Param({"10"})
+    public int extensions;
+
+    @Param({"true", "false"})
+    public boolean cached;
+
+    private SyntheticPlugins syntheticPlugins;
+    private SpringPluginManager pluginManager;
+    private AnnotationConfigApplicationContext applicationContext;
+
+    @Setup
+    public void setUp() {
+        syntheticPlugins = SyntheticPlugins.generate(plugins, extensions);
+        pluginManager = new SpringPluginManager(syntheticPlugins.getPluginsRoot()) {
+
+            @Override
+            protected ExtensionFactory createExtensionFactory() {
+                return new SingletonSpringExtensionFactory(this);
+            }
+
+        };
+        pluginManager.setExtensionsCacheEnabled(cached);
+        applicationContext = new AnnotationConfigApplicationContext();
+        applicationContext.registerBean("pluginManager", SpringPluginManager.class, () -> pluginManager);
+        applicationContext.refresh();
+    }
+
+    @TearDown
+    public void tearDown() {
+        pluginManager.stopPlugins();
+        pluginManager.unloadPlugins();
+        applicationContext.close();
+        syntheticPlugins.delete();
+    }
+
+    @Benchmark
+    public List<BenchmarkExtensionPoint> getExtensions() {
+        return pluginManager.getExtensions(BenchmarkExtensionPoint.class);
+    }
+
+    @Benchmark
+    @Threads(4)
+    public List<BenchmarkExtensionPoint> getExtensionsConcurrently() {
+        return pluginManager.getExtensions(BenchmarkExtensionPoint.class);
+    }
+
+}
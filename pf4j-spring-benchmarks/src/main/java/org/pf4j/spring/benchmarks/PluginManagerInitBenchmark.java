@@ -0,0 +1,98 @@
+/*
+ * Copyright (C) 2012-present the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.pf4j.spring.benchmarks;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+import org.pf4j.spring.InjectionMode;
+import org.pf4j.spring.SpringPluginManager;
+import org.springframework.context.annotation.AnnotationConfigApplicationContext;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Measures {@link SpringPluginManager#init()} (load and start the plugins, inject the extensions)
+ * for N plugins x M extensions, as part of the refresh of the host application context.
+ */
+@BenchmarkMode(Mode.SingleShotTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 5)
+@Measurement(iterations = 10)
+@Fork(1)
+@State(Scope.Benchmark)
+public class PluginManagerInitBenchmark {
+
+    @Param({"10", "50"})
+    public int plugins;
+
+    @Param({"10"})
+    public int extensions;
+
+    @Param({"1", "4"})
+    public int bootstrapThreads;
+
+    @Param({"EAGER", "LAZY", "PARALLEL"})
+    public InjectionMode injectionMode;
+
+    @Param({"false", "true"})
+    public boolean childContext;
+
+    private SyntheticPlugins syntheticPlugins;
+    private SpringPluginManager pluginManager;
+    private AnnotationConfigApplicationContext applicationContext;
+
+    @Setup(Level.Trial)
+    public void generatePlugins() {
+        syntheticPlugins = SyntheticPlugins.generate(plugins, extensions, childContext);
+    }
+
+    @TearDown(Level.Trial)
+    public void deletePlugins() {
+        syntheticPlugins.delete();
+    }
+
+    @TearDown(Level.Invocation)
+    public void tearDown() {
+        pluginManager.stopPlugins();
+        pluginManager.unloadPlugins();
+        applicationContext.close();
+    }
+
+    @Benchmark
+    public SpringPluginManager init() {
+        pluginManager = new SpringPluginManager(syntheticPlugins.getPluginsRoot());
+        pluginManager.setBootstrapThreads(bootstrapThreads);
+        pluginManager.setInjectionMode(injectionMode);
+
+        applicationContext = new AnnotationConfigApplicationContext();
+        applicationContext.registerBean("pluginManager", SpringPluginManager.class, () -> pluginManager);
+        applicationContext.refresh();
+
+        return pluginManager;
+    }
+
+}
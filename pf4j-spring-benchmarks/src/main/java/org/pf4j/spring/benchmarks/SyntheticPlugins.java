@@ -0,0 +1,232 @@
+/*
+ * Copyright (C) 2012-present the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.pf4j.spring.benchmarks;
+
+import javax.tools.JavaCompiler;
+import javax.tools.ToolProvider;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.UncheckedIOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+import java.util.jar.Attributes;
+import java.util.jar.JarEntry;
+import java.util.jar.JarOutputStream;
+import java.util.jar.Manifest;
+import java.util.stream.Stream;
+
+/**
+ * Generates (offline, with the system Java compiler) a set of plugin jars in a temporary directory.
+ * <p>
+ * Each plugin is a {@code SpringPlugin} with a small application context (a configuration class and a service bean)
+ * and a number of extensions of {@link BenchmarkExtensionPoint}. Each extension has an autowired constructor
+ * that receives the service and a no-arg constructor (used when the extension is created without Spring).
+ */
+public class SyntheticPlugins {
+
+    /**
+     * The classes of a plugin must be outside of {@code org.pf4j} (the plugin class loader delegates
+     * that package to the application class loader).
+     */
+    private static final String PACKAGE_PREFIX = "benchmarks.plugin";
+
+    private final Path pluginsRoot;
+    private final int plugins;
+    private final int extensions;
+
+    private final boolean childContext;
+
+    private SyntheticPlugins(Path pluginsRoot, int plugins, int extensions, boolean childContext) {
+        this.pluginsRoot = pluginsRoot;
+        this.plugins = plugins;
+        this.extensions = extensions;
+        this.childContext = childContext;
+    }
+
+    /**
+     * Generates {@code plugins} plugin jars, each with {@code extensions} extensions.
+     */
+    public static SyntheticPlugins generate(int plugins, int extensions) {
+        return generate(plugins, extensions, false);
+    }
+
+    /**
+     * Generates {@code plugins} plugin jars, each with {@code extensions} extensions.
+     *
+     * @param childContext if {@code true} the plugins are {@code ChildContextSpringPlugin}s
+     */
+    public static SyntheticPlugins generate(int plugins, int extensions, boolean childContext) {
+        try {
+            SyntheticPlugins syntheticPlugins = new SyntheticPlugins(Files.createTempDirectory("pf4j-spring-benchmarks"), plugins, extensions, childContext);
+            for (int i = 0; i < plugins; i++) {
+                syntheticPlugins.generatePlugin(i);
+            }
+
+            return syntheticPlugins;
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+
+    public Path getPluginsRoot() {
+        return pluginsRoot;
+    }
+
+    public int getPlugins() {
+        return plugins;
+    }
+
+    public int getExtensions() {
+        return extensions;
+    }
+
+    /**
+     * Returns the name of the class of an extension.
+     */
+    public static String extensionClassName(int plugin, int extension) {
+        return PACKAGE_PREFIX + plugin + ".Extension" + extension;
+    }
+
+    public static String pluginId(int plugin) {
+        return "plugin" + plugin;
+    }
+
+    /**
+     * Deletes the generated plugins.
+     */
+    public void delete() {
+        try (Stream<Path> paths = Files.walk(pluginsRoot)) {
+            paths.sorted(Comparator.reverseOrder()).forEach(path -> path.toFile().delete());
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+
+    private void generatePlugin(int plugin) throws IOException {
+        String packageName = PACKAGE_PREFIX + plugin;
+        Path workDir = Files.createTempDirectory("plugin" + plugin);
+        Path sourceDir = Files.createDirectories(workDir.resolve("src"));
+        Path classesDir = Files.createDirectories(workDir.resolve("classes"));
+
+        List<Path> sources = new ArrayList<>();
+        if (childContext) {
+            sources.add(writeSource(sourceDir, "BenchmarkPlugin", "package " + packageName + ";\n"
+                + "public class BenchmarkPlugin extends org.pf4j.spring.ChildContextSpringPlugin {\n"
+                + "    public BenchmarkPlugin(org.pf4j.PluginWrapper wrapper) { super(wrapper); }\n"
+                + "    @Override\n"
+                + "    protected Class<?>[] getConfigurationClasses() { return new Class<?>[] { BenchmarkConfiguration.class }; }\n"
+                + "}\n"));
+        } else {
+            sources.add(writeSource(sourceDir, "BenchmarkPlugin", "package " + packageName + ";\n"
+                + "public class BenchmarkPlugin extends org.pf4j.spring.SpringPlugin {\n"
+                + "    public BenchmarkPlugin(org.pf4j.PluginWrapper wrapper) { super(wrapper); }\n"
+                + "    @Override\n"
+                + "    protected org.springframework.context.ApplicationContext createApplicationContext() {\n"
+                + "        org.springframework.context.annotation.AnnotationConfigApplicationContext applicationContext =\n"
+                + "            new org.springframework.context.annotation.AnnotationConfigApplicationContext();\n"
+                + "        applicationContext.setClassLoader(getClass().getClassLoader());\n"
+                + "        applicationContext.setApplicationStartup(getApplicationStartup());\n"
+                + "        applicationContext.register(BenchmarkConfiguration.class);\n"
+                + "        applicationContext.refresh();\n"
+                + "        return applicationContext;\n"
+                + "    }\n"
+                + "}\n"));
+        }
+        sources.add(writeSource(sourceDir, "BenchmarkService", "package " + packageName + ";\n"
+            + "public class BenchmarkService {\n"
+            + "    public String getName() { return \"" + pluginId(plugin) + "\"; }\n"
+            + "}\n"));
+        sources.add(writeSource(sourceDir, "BenchmarkConfiguration", "package " + packageName + ";\n"
+            + "@org.springframework.context.annotation.Configuration\n"
+            + "@org.springframework.context.annotation.Import(" + SharedConfiguration.class.getName() + ".class)\n"
+            + "public class BenchmarkConfiguration {\n"
+            + "    @org.springframework.context.annotation.Bean\n"
+            + "    public BenchmarkService benchmarkService() { return new BenchmarkService(); }\n"
+            + "}\n"));
+
+        StringBuilder extensionsIndex = new StringBuilder();
+        for (int i = 0; i < extensions; i++) {
+            String className = "Extension" + i;
+            sources.add(writeSource(sourceDir, className, "package " + packageName + ";\n"
+                + "@org.pf4j.Extension(ordinal = " + i + ")\n"
+                + "public class " + className + " implements " + BenchmarkExtensionPoint.class.getName() + " {\n"
+                + "    private final BenchmarkService service;\n"
+                + "    public " + className + "() { this(null); }\n"
+                + "    @org.springframework.beans.factory.annotation.Autowired\n"
+                + "    public " + className + "(BenchmarkService service) { this.service = service; }\n"
+                + "    @Override\n"
+                + "    public String getName() { return (service != null) ? service.getName() : \"" + className + "\"; }\n"
+                + "}\n"));
+            extensionsIndex.append(extensionClassName(plugin, i)).append('\n');
+        }
+
+        compile(sources, classesDir);
+
+        Path extensionsIndexFile = Files.createDirectories(classesDir.resolve("META-INF")).resolve("extensions.idx");
+        Files.write(extensionsIndexFile, extensionsIndex.toString().getBytes(StandardCharsets.UTF_8));
+
+        Manifest manifest = new Manifest();
+        Attributes attributes = manifest.getMainAttributes();
+        attributes.put(Attributes.Name.MANIFEST_VERSION, "1.0");
+        attributes.putValue("Plugin-Id", pluginId(plugin));
+        attributes.putValue("Plugin-Class", packageName + ".BenchmarkPlugin");
+        attributes.putValue("Plugin-Version", "1.0.0");
+        jar(classesDir, pluginsRoot.resolve(pluginId(plugin) + ".jar"), manifest);
+
+        try (Stream<Path> paths = Files.walk(workDir)) {
+            paths.sorted(Comparator.reverseOrder()).forEach(path -> path.toFile().delete());
+        }
+    }
+
+    private Path writeSource(Path sourceDir, String className, String source) throws IOException {
+        return Files.write(sourceDir.resolve(className + ".java"), source.getBytes(StandardCharsets.UTF_8));
+    }
+
+    private void compile(List<Path> sources, Path classesDir) {
+        JavaCompiler compiler = ToolProvider.getSystemJavaCompiler();
+        if (compiler == null) {
+            throw new IllegalStateException("A JDK is required to generate the synthetic plugins");
+        }
+
+        List<String> arguments = new ArrayList<>();
+        arguments.add("-proc:none");
+        arguments.add("-classpath");
+        arguments.add(System.getProperty("java.class.path"));
+        arguments.add("-d");
+        arguments.add(classesDir.toString());
+        sources.forEach(source -> arguments.add(source.toString()));
+        if (compiler.run(null, null, null, arguments.toArray(new String[0])) != 0) {
+            throw new IllegalStateException("Cannot compile the synthetic plugin sources");
+        }
+    }
+
+    private void jar(Path classesDir, Path jarFile, Manifest manifest) throws IOException {
+        try (OutputStream output = Files.newOutputStream(jarFile);
+             JarOutputStream jar = new JarOutputStream(output, manifest);
+             Stream<Path> paths = Files.walk(classesDir)) {
+            for (Path path : (Iterable<Path>) paths.filter(Files::isRegularFile)::iterator) {
+                jar.putNextEntry(new JarEntry(classesDir.relativize(path).toString().replace('\\', '/')));
+                Files.copy(path, jar);
+                jar.closeEntry();
+            }
+        }
+    }
+
+}
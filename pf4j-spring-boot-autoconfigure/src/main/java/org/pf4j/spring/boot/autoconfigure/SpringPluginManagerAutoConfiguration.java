@@ -0,0 +1,111 @@
+/*
+ * Copyright (C) 2012-present the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.pf4j.spring.boot.autoconfigure;
+
+import org.pf4j.ExtensionFactory;
+import org.pf4j.PluginManager;
+import org.pf4j.RuntimeMode;
+import org.pf4j.spring.PluginExtensionsRegistrar;
+import org.pf4j.spring.PooledSpringExtensionFactory;
+import org.pf4j.spring.PrototypeSpringExtensionFactory;
+import org.pf4j.spring.ScopedSpringExtensionFactory;
+import org.pf4j.spring.SingletonSpringExtensionFactory;
+import org.pf4j.spring.SpringExtensionFactory;
+import org.pf4j.spring.SpringPluginManager;
+import org.pf4j.spring.SpringPluginMetrics;
+import org.springframework.beans.factory.ObjectProvider;
+import org.springframework.boot.autoconfigure.AutoConfiguration;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnClass;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnMissingBean;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.boot.context.properties.EnableConfigurationProperties;
+import org.springframework.context.annotation.Bean;
+
+/**
+ * Creates a {@link SpringPluginManager} (the {@code pluginManager} bean) configured with
+ * the {@code pf4j.*} properties (see {@link SpringPluginManagerProperties}), unless the application defines a {@link PluginManager}.
+ * A {@link SpringPluginMetrics} bean, if any, receives the measurements of the plugin manager.
+ * <p>
+ * As with a plugin manager defined by the application, the beans that inject extensions of the plugins
+ * must depend on the {@code pluginManager} bean (with {@code @DependsOn("pluginManager")}).
+ * The beans that inject a {@link org.pf4j.spring.PluginExtensions} don't, its bean definition being registered
+ * before the instantiation of the singletons (see {@link PluginExtensionsRegistrar}).
+ */
+@AutoConfiguration
+@ConditionalOnClass(SpringPluginManager.class)
+@ConditionalOnProperty(prefix = SpringPluginManagerProperties.PREFIX, name = "enabled", matchIfMissing = true)
+@EnableConfigurationProperties(SpringPluginManagerProperties.class)
+public class SpringPluginManagerAutoConfiguration {
+
+    @Bean
+    @ConditionalOnMissingBean(PluginManager.class)
+    public SpringPluginManager pluginManager(SpringPluginManagerProperties properties, ObjectProvider<SpringPluginMetrics> metrics) {
+        // the runtime mode and the extension factory are used by the constructor of the plugin manager,
+        // so they are provided by overriding methods (the captured values are assigned before the super constructor call)
+        RuntimeMode configuredRuntimeMode = properties.getRuntimeMode();
+        SpringPluginManagerProperties.ExtensionFactory extensionFactoryProperties = properties.getExtensionFactory();
+        SpringPluginManager pluginManager = new SpringPluginManager(properties.getPluginsRoots()) {
+
+            @Override
+            public RuntimeMode getRuntimeMode() {
+                return (configuredRuntimeMode != null) ? configuredRuntimeMode : super.getRuntimeMode();
+            }
+
+            @Override
+            protected ExtensionFactory createExtensionFactory() {
+                return SpringPluginManagerAutoConfiguration.createExtensionFactory(this, extensionFactoryProperties);
+            }
+
+        };
+
+        pluginManager.setInjectionMode(properties.getInjectionMode());
+        pluginManager.setBootstrapThreads(properties.getBootstrapThreads());
+        pluginManager.setAsyncStartup(properties.isAsyncStartup());
+        pluginManager.setExtensionsCacheEnabled(properties.isExtensionsCacheEnabled());
+        pluginManager.setContextIdleTimeout(properties.getContextIdleTimeout());
+        metrics.ifAvailable(pluginManager::setMetrics);
+
+        return pluginManager;
+    }
+
+    /**
+     * Registers the {@code pluginExtensions} bean definition before the instantiation of the singletons.
+     */
+    @Bean
+    public static PluginExtensionsRegistrar pluginExtensionsRegistrar() {
+        return new PluginExtensionsRegistrar();
+    }
+
+    static ExtensionFactory createExtensionFactory(PluginManager pluginManager, SpringPluginManagerProperties.ExtensionFactory properties) {
+        boolean autowire = properties.isAutowire();
+        String[] extensionClassNames = properties.getExtensionClassNames().toArray(new String[0]);
+
+        switch (properties.getType()) {
+            case SINGLETON:
+                return new SingletonSpringExtensionFactory(pluginManager, autowire, extensionClassNames);
+            case PROTOTYPE:
+                return new PrototypeSpringExtensionFactory(pluginManager, autowire);
+            case SCOPED:
+                return new ScopedSpringExtensionFactory(pluginManager, autowire, extensionClassNames);
+            case POOLED:
+                return new PooledSpringExtensionFactory(pluginManager, autowire, properties.getPoolMaxSize(), properties.getPoolMaxIdleTime(),
+                    properties.getPoolMaxActive(), properties.getPoolMaxWait());
+            default:
+                return new SpringExtensionFactory(pluginManager, autowire);
+        }
+    }
+
+}
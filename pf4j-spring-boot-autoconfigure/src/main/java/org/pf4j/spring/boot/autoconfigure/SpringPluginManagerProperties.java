@@ -0,0 +1,274 @@
+/*
+ * Copyright (C) 2012-present the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.pf4j.spring.boot.autoconfigure;
+
+import org.pf4j.RuntimeMode;
+import org.pf4j.spring.InjectionMode;
+import org.pf4j.spring.PooledSpringExtensionFactory;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+
+import java.nio.file.Path;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * The configuration of the {@link org.pf4j.spring.SpringPluginManager} created by
+ * {@link SpringPluginManagerAutoConfiguration} (the {@code pf4j.*} properties).
+ */
+@ConfigurationProperties(prefix = SpringPluginManagerProperties.PREFIX)
+public class SpringPluginManagerProperties {
+
+    public static final String PREFIX = "pf4j";
+
+    /**
+     * Whether to create the plugin manager.
+     */
+    private boolean enabled = true;
+
+    /**
+     * The directories of the plugins (by default the PF4J default, see the "pf4j.pluginsDir" system property).
+     */
+    private List<Path> pluginsRoots = new ArrayList<>();
+
+    /**
+     * The runtime mode (by default the PF4J default, see the "pf4j.mode" system property).
+     */
+    private RuntimeMode runtimeMode;
+
+    /**
+     * How the extensions are exposed as Spring beans.
+     */
+    private InjectionMode injectionMode = InjectionMode.EAGER;
+
+    /**
+     * The number of threads used to create the application contexts of the plugins (1 means on first use).
+     */
+    private int bootstrapThreads = 1;
+
+    /**
+     * Whether to create the application contexts of the plugins and register their extensions in background.
+     */
+    private boolean asyncStartup;
+
+    /**
+     * Whether to cache the extensions returned by the plugin manager, until a plugin changes state.
+     */
+    private boolean extensionsCacheEnabled;
+
+    /**
+     * The idle time after which the application context of a plugin is closed (by default never).
+     */
+    private Duration contextIdleTimeout;
+
+    private final ExtensionFactory extensionFactory = new ExtensionFactory();
+
+    public boolean isEnabled() {
+        return enabled;
+    }
+
+    public void setEnabled(boolean enabled) {
+        this.enabled = enabled;
+    }
+
+    public List<Path> getPluginsRoots() {
+        return pluginsRoots;
+    }
+
+    public void setPluginsRoots(List<Path> pluginsRoots) {
+        this.pluginsRoots = pluginsRoots;
+    }
+
+    public RuntimeMode getRuntimeMode() {
+        return runtimeMode;
+    }
+
+    public void setRuntimeMode(RuntimeMode runtimeMode) {
+        this.runtimeMode = runtimeMode;
+    }
+
+    public InjectionMode getInjectionMode() {
+        return injectionMode;
+    }
+
+    public void setInjectionMode(InjectionMode injectionMode) {
+        this.injectionMode = injectionMode;
+    }
+
+    public int getBootstrapThreads() {
+        return bootstrapThreads;
+    }
+
+    public void setBootstrapThreads(int bootstrapThreads) {
+        this.bootstrapThreads = bootstrapThreads;
+    }
+
+    public boolean isAsyncStartup() {
+        return asyncStartup;
+    }
+
+    public void setAsyncStartup(boolean asyncStartup) {
+        this.asyncStartup = asyncStartup;
+    }
+
+    public boolean isExtensionsCacheEnabled() {
+        return extensionsCacheEnabled;
+    }
+
+    public void setExtensionsCacheEnabled(boolean extensionsCacheEnabled) {
+        this.extensionsCacheEnabled = extensionsCacheEnabled;
+    }
+
+    public Duration getContextIdleTimeout() {
+        return contextIdleTimeout;
+    }
+
+    public void setContextIdleTimeout(Duration contextIdleTimeout) {
+        this.contextIdleTimeout = contextIdleTimeout;
+    }
+
+    public ExtensionFactory getExtensionFactory() {
+        return extensionFactory;
+    }
+
+    /**
+     * The extension factory of the plugin manager ({@code pf4j.extension-factory.*}).
+     */
+    public static class ExtensionFactory {
+
+        /**
+         * The kind of extension factory.
+         */
+        private ExtensionFactoryType type = ExtensionFactoryType.SPRING;
+
+        /**
+         * Whether to autowire the extensions created by the factory.
+         */
+        private boolean autowire = true;
+
+        /**
+         * The extension classes kept as singletons by a singleton or scoped factory (by default all).
+         */
+        private List<String> extensionClassNames = new ArrayList<>();
+
+        /**
+         * The max number of idle instances kept per extension class by a pooled factory.
+         */
+        private int poolMaxSize = PooledSpringExtensionFactory.DEFAULT_MAX_SIZE;
+
+        /**
+         * The idle time after which a pooled instance is evicted.
+         */
+        private Duration poolMaxIdleTime = PooledSpringExtensionFactory.DEFAULT_MAX_IDLE_TIME;
+
+        /**
+         * The max number of borrowed instances per extension class of a pooled factory (0 for no bound).
+         */
+        private int poolMaxActive = PooledSpringExtensionFactory.UNBOUNDED;
+
+        /**
+         * The max time a borrow waits for an instance when the max number of instances are borrowed.
+         */
+        private Duration poolMaxWait = PooledSpringExtensionFactory.DEFAULT_MAX_WAIT;
+
+        public ExtensionFactoryType getType() {
+            return type;
+        }
+
+        public void setType(ExtensionFactoryType type) {
+            this.type = type;
+        }
+
+        public boolean isAutowire() {
+            return autowire;
+        }
+
+        public void setAutowire(boolean autowire) {
+            this.autowire = autowire;
+        }
+
+        public List<String> getExtensionClassNames() {
+            return extensionClassNames;
+        }
+
+        public void setExtensionClassNames(List<String> extensionClassNames) {
+            this.extensionClassNames = extensionClassNames;
+        }
+
+        public int getPoolMaxSize() {
+            return poolMaxSize;
+        }
+
+        public void setPoolMaxSize(int poolMaxSize) {
+            this.poolMaxSize = poolMaxSize;
+        }
+
+        public Duration getPoolMaxIdleTime() {
+            return poolMaxIdleTime;
+        }
+
+        public void setPoolMaxIdleTime(Duration poolMaxIdleTime) {
+            this.poolMaxIdleTime = poolMaxIdleTime;
+        }
+
+        public int getPoolMaxActive() {
+            return poolMaxActive;
+        }
+
+        public void setPoolMaxActive(int poolMaxActive) {
+            this.poolMaxActive = poolMaxActive;
+        }
+
+        public Duration getPoolMaxWait() {
+            return poolMaxWait;
+        }
+
+        public void setPoolMaxWait(Duration poolMaxWait) {
+            this.poolMaxWait = poolMaxWait;
+        }
+
+    }
+
+    public enum ExtensionFactoryType {
+
+        /**
+         * A new instance on each call ({@link org.pf4j.spring.SpringExtensionFactory}).
+         */
+        SPRING,
+
+        /**
+         * One instance per extension class ({@link org.pf4j.spring.SingletonSpringExtensionFactory}).
+         */
+        SINGLETON,
+
+        /**
+         * A new instance on each call, from a prototype bean definition ({@link org.pf4j.spring.PrototypeSpringExtensionFactory}).
+         */
+        PROTOTYPE,
+
+        /**
+         * The scope of the {@code @Scope} of the extension class ({@link org.pf4j.spring.ScopedSpringExtensionFactory}).
+         */
+        SCOPED,
+
+        /**
+         * Bounded pools of instances ({@link org.pf4j.spring.PooledSpringExtensionFactory}).
+         */
+        POOLED
+
+    }
+
+}
@@ -0,0 +1,131 @@
+/*
+ * Copyright (C) 2012-present the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.pf4j.spring.boot.autoconfigure;
+
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+import org.pf4j.DefaultPluginManager;
+import org.pf4j.ExtensionPoint;
+import org.pf4j.PluginManager;
+import org.pf4j.RuntimeMode;
+import org.pf4j.spring.InjectionMode;
+import org.pf4j.spring.PluginExtensions;
+import org.pf4j.spring.PluginExtensionsRegistrar;
+import org.pf4j.spring.PooledSpringExtensionFactory;
+import org.pf4j.spring.SingletonSpringExtensionFactory;
+import org.pf4j.spring.SpringExtensionFactory;
+import org.pf4j.spring.SpringPluginManager;
+import org.springframework.boot.autoconfigure.AutoConfigurations;
+import org.springframework.boot.test.context.runner.ApplicationContextRunner;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+public class SpringPluginManagerAutoConfigurationTest {
+
+    @Rule
+    public TemporaryFolder pluginsRoot = new TemporaryFolder();
+
+    private ApplicationContextRunner contextRunner() {
+        return new ApplicationContextRunner()
+            .withConfiguration(AutoConfigurations.of(SpringPluginManagerAutoConfiguration.class))
+            .withPropertyValues("pf4j.plugins-roots=" + pluginsRoot.getRoot().getAbsolutePath());
+    }
+
+    @Test
+    public void pluginManagerIsCreatedWithTheDefaults() {
+        contextRunner().run(context -> {
+            assertThat(context).hasSingleBean(PluginManager.class);
+            SpringPluginManager pluginManager = context.getBean(SpringPluginManager.class);
+            assertThat(pluginManager.getInjectionMode()).isEqualTo(InjectionMode.EAGER);
+            assertThat(pluginManager.getExtensionFactory()).isExactlyInstanceOf(SpringExtensionFactory.class);
+            assertThat(pluginManager.getPluginsRoots()).containsExactly(pluginsRoot.getRoot().toPath());
+        });
+    }
+
+    @Test
+    public void injectionModeIsConfigured() {
+        contextRunner().withPropertyValues("pf4j.injection-mode=LAZY").run(context ->
+            assertThat(context.getBean(SpringPluginManager.class).getInjectionMode()).isEqualTo(InjectionMode.LAZY));
+    }
+
+    @Test
+    public void extensionFactoryTypeIsConfigured() {
+        contextRunner().withPropertyValues("pf4j.extension-factory.type=SINGLETON").run(context ->
+            assertThat(context.getBean(SpringPluginManager.class).getExtensionFactory())
+                .isExactlyInstanceOf(SingletonSpringExtensionFactory.class));
+
+        contextRunner().withPropertyValues("pf4j.extension-factory.type=POOLED", "pf4j.extension-factory.pool-max-size=2",
+                "pf4j.extension-factory.pool-max-active=4", "pf4j.extension-factory.pool-max-wait=1s")
+            .run(context -> assertThat(context.getBean(SpringPluginManager.class).getExtensionFactory())
+                .isExactlyInstanceOf(PooledSpringExtensionFactory.class));
+    }
+
+    @Test
+    public void runtimeModeIsConfigured() {
+        contextRunner().withPropertyValues("pf4j.runtime-mode=DEVELOPMENT").run(context ->
+            assertThat(context.getBean(SpringPluginManager.class).getRuntimeMode()).isEqualTo(RuntimeMode.DEVELOPMENT));
+
+        contextRunner().withPropertyValues("pf4j.runtime-mode=DEPLOYMENT").run(context ->
+            assertThat(context.getBean(SpringPluginManager.class).getRuntimeMode()).isEqualTo(RuntimeMode.DEPLOYMENT));
+    }
+
+    @Test
+    public void backsOffWhenThePluginManagerIsDefined() {
+        contextRunner().withUserConfiguration(PluginManagerConfiguration.class).run(context -> {
+            assertThat(context).hasSingleBean(PluginManager.class);
+            assertThat(context).doesNotHaveBean(SpringPluginManager.class);
+            assertThat(context).hasBean("customPluginManager");
+        });
+    }
+
+    @Test
+    public void backsOffWhenDisabled() {
+        contextRunner().withPropertyValues("pf4j.enabled=false").run(context ->
+            assertThat(context).doesNotHaveBean(PluginManager.class));
+    }
+
+    @Test
+    public void pluginExtensionsIsInjectedWithoutDependingOnThePluginManager() {
+        contextRunner().withUserConfiguration(ExtensionsConsumer.class).run(context -> {
+            assertThat(context).hasSingleBean(PluginExtensionsRegistrar.class);
+            assertThat(context.getBean(ExtensionsConsumer.class).extensions.stream()).isEmpty();
+        });
+    }
+
+    @Configuration(proxyBeanMethods = false)
+    static class PluginManagerConfiguration {
+
+        @Bean
+        public PluginManager customPluginManager() {
+            return new DefaultPluginManager();
+        }
+
+    }
+
+    static class ExtensionsConsumer {
+
+        private final PluginExtensions<ExtensionPoint> extensions;
+
+        ExtensionsConsumer(PluginExtensions<ExtensionPoint> extensions) {
+            this.extensions = extensions;
+        }
+
+    }
+
+}
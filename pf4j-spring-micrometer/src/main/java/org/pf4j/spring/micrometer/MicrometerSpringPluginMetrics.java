@@ -0,0 +1,255 @@
+/*
+ * Copyright (C) 2012-present the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.pf4j.spring.micrometer;
+
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Tags;
+import io.micrometer.core.instrument.Timer;
+import io.micrometer.core.instrument.binder.BaseUnits;
+import org.pf4j.spring.SpringPluginMetrics;
+import org.springframework.context.ApplicationContext;
+
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Records the measurements of PF4J-Spring in a Micrometer {@link MeterRegistry}.
+ * <p>
+ * The meters are:
+ * <ul>
+ *     <li>{@code pf4j.spring.init} (timer) - the duration of {@code SpringPluginManager.init()}</li>
+ *     <li>{@code pf4j.spring.plugin.context.refresh} (timer, tag {@code plugin}) - the creation of a plugin application context</li>
+ *     <li>{@code pf4j.spring.plugin.context.beans} (gauge, tag {@code plugin}) - the number of beans of the plugin context,
+ *     {@code 0} while the context is passivated</li>
+ *     <li>{@code pf4j.spring.plugin.context.memory} (gauge in bytes, tag {@code plugin}) - the heap allocated to create the
+ *     plugin context (see {@code SpringPlugin.getContextAllocatedBytes()}), {@code 0} while the context is passivated</li>
+ *     <li>{@code pf4j.spring.plugin.context.passivations} (counter, tag {@code plugin}) - the passivations of the idle plugin context</li>
+ *     <li>{@code pf4j.spring.extensions.injection} (timer, tag {@code plugin}) - the registration of the extensions of a plugin as beans,
+ *     with plugin {@code system} for the extensions that don't belong to a plugin</li>
+ *     <li>{@code pf4j.spring.extension.creation} (timer, tags {@code extension}, {@code path}) - the creation of an extension,
+ *     with {@code path} {@code spring} or {@code plain}</li>
+ *     <li>{@code pf4j.spring.extension.singleton.cache} (counter, tags {@code extension}, {@code result}) - the lookups of singleton extensions,
+ *     with {@code result} {@code hit} or {@code miss}</li>
+ *     <li>{@code pf4j.spring.extension.pool} (counter, tags {@code extension}, {@code result}) - the borrows of pooled extensions,
+ *     with {@code result} {@code hit} (an idle instance was reused) or {@code miss}</li>
+ *     <li>{@code pf4j.spring.extension.pool.evictions} (counter, tag {@code extension}) - the idle pooled extensions evicted</li>
+ * </ul>
+ * The meters of an extension are tagged with the extension class name only (not with the plugin).
+ * <p>
+ * The meters of an extension are looked up once and cached by the extension class name (not by class, so that
+ * the class loader of an unloaded plugin is not retained).
+ */
+public class MicrometerSpringPluginMetrics implements SpringPluginMetrics {
+
+    public static final String PREFIX = "pf4j.spring";
+
+    private static final String SYSTEM = "system";
+
+    private final MeterRegistry registry;
+    private final Timer initTimer;
+    private final ConcurrentMap<String, AtomicInteger> beanCounts = new ConcurrentHashMap<>();
+    private final ConcurrentMap<String, AtomicLong> contextMemory = new ConcurrentHashMap<>();
+    private final ConcurrentMap<String, ExtensionMeters> extensionMeters = new ConcurrentHashMap<>();
+
+    public MicrometerSpringPluginMetrics(MeterRegistry registry) {
+        this.registry = registry;
+
+        initTimer = Timer.builder(PREFIX + ".init")
+            .description("The time to load and start the plugins and to inject the extensions")
+            .register(registry);
+    }
+
+    @Override
+    public void pluginManagerInitialized(long durationNanos) {
+        initTimer.record(durationNanos, TimeUnit.NANOSECONDS);
+    }
+
+    @Override
+    public void applicationContextCreated(String pluginId, ApplicationContext applicationContext, long durationNanos) {
+        Timer.builder(PREFIX + ".plugin.context.refresh")
+            .description("The time to create the application context of a plugin")
+            .tags(Tags.of("plugin", pluginId))
+            .register(registry)
+            .record(durationNanos, TimeUnit.NANOSECONDS);
+
+        beanCounts.computeIfAbsent(pluginId, key -> {
+            AtomicInteger beanCount = new AtomicInteger();
+            Gauge.builder(PREFIX + ".plugin.context.beans", beanCount, AtomicInteger::get)
+                .description("The number of beans in the application context of a plugin")
+                .tags(Tags.of("plugin", key))
+                .register(registry);
+
+            return beanCount;
+        }).set(applicationContext.getBeanDefinitionCount());
+    }
+
+    @Override
+    public void applicationContextAllocated(String pluginId, long allocatedBytes) {
+        contextMemory.computeIfAbsent(pluginId, key -> {
+            AtomicLong bytes = new AtomicLong();
+            Gauge.builder(PREFIX + ".plugin.context.memory", bytes, AtomicLong::get)
+                .description("The heap allocated to create the application context of a plugin")
+                .baseUnit(BaseUnits.BYTES)
+                .tags(Tags.of("plugin", key))
+                .register(registry);
+
+            return bytes;
+        }).set(allocatedBytes);
+    }
+
+    @Override
+    public void applicationContextPassivated(String pluginId) {
+        Counter.builder(PREFIX + ".plugin.context.passivations")
+            .description("The passivations of the idle application context of a plugin")
+            .tags(Tags.of("plugin", pluginId))
+            .register(registry)
+            .increment();
+
+        AtomicInteger beanCount = beanCounts.get(pluginId);
+        if (beanCount != null) {
+            beanCount.set(0);
+        }
+        AtomicLong bytes = contextMemory.get(pluginId);
+        if (bytes != null) {
+            bytes.set(0);
+        }
+    }
+
+    @Override
+    public void extensionsInjected(String pluginId, int extensionCount, long durationNanos) {
+        Timer.builder(PREFIX + ".extensions.injection")
+            .description("The time to register the extensions of a plugin as beans")
+            .tags(Tags.of("plugin", (pluginId != null) ? pluginId : SYSTEM))
+            .register(registry)
+            .record(durationNanos, TimeUnit.NANOSECONDS);
+    }
+
+    @Override
+    public void extensionCreated(Class<?> extensionClass, boolean withSpring, long durationNanos) {
+        getExtensionMeters(extensionClass).getCreationTimer(withSpring).record(durationNanos, TimeUnit.NANOSECONDS);
+    }
+
+    @Override
+    public void singletonCacheHit(Class<?> extensionClass) {
+        getExtensionMeters(extensionClass).getSingletonCounter(true).increment();
+    }
+
+    @Override
+    public void singletonCacheMiss(Class<?> extensionClass) {
+        getExtensionMeters(extensionClass).getSingletonCounter(false).increment();
+    }
+
+    @Override
+    public void extensionBorrowed(Class<?> extensionClass, boolean reused) {
+        getExtensionMeters(extensionClass).getPoolCounter(reused).increment();
+    }
+
+    @Override
+    public void idleExtensionsEvicted(Class<?> extensionClass, int count) {
+        Counter.builder(PREFIX + ".extension.pool.evictions")
+            .description("The idle pooled extensions evicted")
+            .tags(Tags.of("extension", extensionClass.getName()))
+            .register(registry)
+            .increment(count);
+    }
+
+    private ExtensionMeters getExtensionMeters(Class<?> extensionClass) {
+        ExtensionMeters meters = extensionMeters.get(extensionClass.getName());
+        if (meters == null) {
+            meters = extensionMeters.computeIfAbsent(extensionClass.getName(), ExtensionMeters::new);
+        }
+
+        return meters;
+    }
+
+    /**
+     * The meters of an extension, each one registered on first use (so that a factory that doesn't cache
+     * singletons doesn't publish empty counters).
+     * A meter may be registered concurrently by two threads, the registry returns the same meter to both.
+     */
+    private class ExtensionMeters {
+
+        private final String extensionClassName;
+        private volatile Timer springCreation;
+        private volatile Timer plainCreation;
+        private volatile Counter singletonHits;
+        private volatile Counter singletonMisses;
+        private volatile Counter poolHits;
+        private volatile Counter poolMisses;
+
+        ExtensionMeters(String extensionClassName) {
+            this.extensionClassName = extensionClassName;
+        }
+
+        Timer getCreationTimer(boolean withSpring) {
+            if (withSpring) {
+                Timer timer = springCreation;
+                return (timer != null) ? timer : (springCreation = creationTimer("spring"));
+            }
+
+            Timer timer = plainCreation;
+            return (timer != null) ? timer : (plainCreation = creationTimer("plain"));
+        }
+
+        Counter getSingletonCounter(boolean hit) {
+            if (hit) {
+                Counter counter = singletonHits;
+                return (counter != null) ? counter : (singletonHits = singletonCounter("hit"));
+            }
+
+            Counter counter = singletonMisses;
+            return (counter != null) ? counter : (singletonMisses = singletonCounter("miss"));
+        }
+
+        Counter getPoolCounter(boolean hit) {
+            if (hit) {
+                Counter counter = poolHits;
+                return (counter != null) ? counter : (poolHits = poolCounter("hit"));
+            }
+
+            Counter counter = poolMisses;
+            return (counter != null) ? counter : (poolMisses = poolCounter("miss"));
+        }
+
+        private Timer creationTimer(String path) {
+            return Timer.builder(PREFIX + ".extension.creation")
+                .description("The time to create an extension")
+                .tags(Tags.of("extension", extensionClassName, "path", path))
+                .register(registry);
+        }
+
+        private Counter singletonCounter(String result) {
+            return Counter.builder(PREFIX + ".extension.singleton.cache")
+                .description("The lookups of singleton extensions")
+                .tags(Tags.of("extension", extensionClassName, "result", result))
+                .register(registry);
+        }
+
+        private Counter poolCounter(String result) {
+            return Counter.builder(PREFIX + ".extension.pool")
+                .description("The borrows of pooled extensions")
+                .tags(Tags.of("extension", extensionClassName, "result", result))
+                .register(registry);
+        }
+
+    }
+
+}
@@ -0,0 +1,266 @@
+/*
+ * Copyright (C) 2012-present the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.pf4j.spring.processor;
+
+import javax.annotation.processing.AbstractProcessor;
+import javax.annotation.processing.RoundEnvironment;
+import javax.annotation.processing.SupportedAnnotationTypes;
+import javax.lang.model.SourceVersion;
+import javax.lang.model.element.AnnotationMirror;
+import javax.lang.model.element.Element;
+import javax.lang.model.element.ElementKind;
+import javax.lang.model.element.ExecutableElement;
+import javax.lang.model.element.Modifier;
+import javax.lang.model.element.TypeElement;
+import javax.lang.model.type.DeclaredType;
+import javax.lang.model.type.TypeKind;
+import javax.lang.model.type.TypeMirror;
+import javax.lang.model.util.ElementFilter;
+import javax.tools.Diagnostic;
+import javax.tools.FileObject;
+import javax.tools.StandardLocation;
+import java.io.IOException;
+import java.io.Reader;
+import java.io.Writer;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Properties;
+import java.util.Set;
+import java.util.TreeMap;
+
+/**
+ * Writes, for the classes annotated with {@code @org.pf4j.Extension}, an index with their Spring injection metadata
+ * in {@value #INDEX_RESOURCE}. The index is read at runtime by {@code org.pf4j.spring.ExtensionIndex}.
+ * <p>
+ * The index is a properties file with this key for each extension class (binary name):
+ * <ul>
+ *     <li>{@code <class>.spring} - {@code false} if the extension has no injection points (a constructor with parameters,
+ *     a member annotated with {@code @Autowired}, {@code @Value}, {@code @Inject} or {@code @Resource}), no lifecycle
+ *     callbacks (Spring interfaces, {@code @PostConstruct}, {@code @PreDestroy}) and a public no-arg constructor
+ *     in a public class, so it can be created without Spring</li>
+ * </ul>
+ * The super classes of an extension are inspected too.
+ * To use it, add this artifact (scope {@code provided}) to the plugin.
+ */
+@SupportedAnnotationTypes(SpringExtensionIndexProcessor.EXTENSION_ANNOTATION)
+public class SpringExtensionIndexProcessor extends AbstractProcessor {
+
+    public static final String INDEX_RESOURCE = "META-INF/pf4j-spring-extensions.properties";
+
+    static final String EXTENSION_ANNOTATION = "org.pf4j.Extension";
+
+    private static final String SPRING_KEY_SUFFIX = ".spring";
+
+    private static final Set<String> INJECTION_ANNOTATIONS = new HashSet<>(Arrays.asList(
+        "org.springframework.beans.factory.annotation.Autowired",
+        "org.springframework.beans.factory.annotation.Value",
+        "jakarta.inject.Inject",
+        "javax.inject.Inject",
+        "jakarta.annotation.Resource",
+        "javax.annotation.Resource"
+    ));
+
+    private static final Set<String> LIFECYCLE_ANNOTATIONS = new HashSet<>(Arrays.asList(
+        "jakarta.annotation.PostConstruct",
+        "jakarta.annotation.PreDestroy",
+        "javax.annotation.PostConstruct",
+        "javax.annotation.PreDestroy"
+    ));
+
+    /**
+     * The index entries (key, value), sorted so that the generated file is reproducible.
+     */
+    private final Map<String, String> index = new TreeMap<>();
+    private final Set<String> indexedClassNames = new HashSet<>();
+
+    @Override
+    public SourceVersion getSupportedSourceVersion() {
+        return SourceVersion.latest();
+    }
+
+    @Override
+    public boolean process(Set<? extends TypeElement> annotations, RoundEnvironment roundEnv) {
+        if (roundEnv.processingOver()) {
+            writeIndex();
+            return false;
+        }
+
+        TypeElement extensionAnnotation = processingEnv.getElementUtils().getTypeElement(EXTENSION_ANNOTATION);
+        if (extensionAnnotation != null) {
+            for (TypeElement extension : ElementFilter.typesIn(roundEnv.getElementsAnnotatedWith(extensionAnnotation))) {
+                indexExtension(extension);
+            }
+        }
+
+        // the annotation is processed by PF4J too
+        return false;
+    }
+
+    private void indexExtension(TypeElement extension) {
+        String className = processingEnv.getElementUtils().getBinaryName(extension).toString();
+        // without a public no-arg constructor in a public class, the extension is created by Spring
+        boolean spring = !isPublicWithPublicNoArgConstructor(extension);
+
+        ExecutableElement constructor = getInjectionConstructor(extension);
+        if (constructor != null && !constructor.getParameters().isEmpty()) {
+            spring = true;
+        }
+
+        for (TypeElement type = extension; type != null && !spring; type = getSuperclass(type)) {
+            spring = hasSpringInterface(type);
+            for (Element member : type.getEnclosedElements()) {
+                if (hasAnnotation(member, LIFECYCLE_ANNOTATIONS)) {
+                    spring = true;
+                }
+                if (member.getKind() != ElementKind.CONSTRUCTOR && hasAnnotation(member, INJECTION_ANNOTATIONS)) {
+                    spring = true;
+                }
+            }
+        }
+
+        indexedClassNames.add(className);
+        index.put(className + SPRING_KEY_SUFFIX, String.valueOf(spring));
+    }
+
+    private boolean isPublicWithPublicNoArgConstructor(TypeElement extension) {
+        if (!extension.getModifiers().contains(Modifier.PUBLIC)) {
+            return false;
+        }
+
+        return ElementFilter.constructorsIn(extension.getEnclosedElements()).stream()
+            .anyMatch(constructor -> constructor.getModifiers().contains(Modifier.PUBLIC) && constructor.getParameters().isEmpty());
+    }
+
+    /**
+     * Returns the constructor used by Spring: the one annotated for injection or else the one with the most parameters.
+     */
+    private ExecutableElement getInjectionConstructor(TypeElement extension) {
+        List<ExecutableElement> constructors = ElementFilter.constructorsIn(extension.getEnclosedElements());
+
+        return constructors.stream()
+            .filter(constructor -> hasAnnotation(constructor, INJECTION_ANNOTATIONS))
+            .findFirst()
+            .orElseGet(() -> constructors.stream()
+                .filter(constructor -> !constructor.getModifiers().contains(Modifier.PRIVATE))
+                .max(Comparator.comparingInt(constructor -> constructor.getParameters().size()))
+                .orElse(null));
+    }
+
+    private boolean hasSpringInterface(TypeElement type) {
+        List<TypeMirror> interfaces = new ArrayList<>(type.getInterfaces());
+        while (!interfaces.isEmpty()) {
+            TypeElement element = (TypeElement) processingEnv.getTypeUtils().asElement(interfaces.remove(0));
+            if (element.getQualifiedName().toString().startsWith("org.springframework.")) {
+                // for example Aware, InitializingBean, DisposableBean
+                return true;
+            }
+            interfaces.addAll(element.getInterfaces());
+        }
+
+        return false;
+    }
+
+    private TypeElement getSuperclass(TypeElement type) {
+        TypeMirror superclass = type.getSuperclass();
+        if (superclass.getKind() != TypeKind.DECLARED) {
+            return null;
+        }
+
+        TypeElement element = (TypeElement) ((DeclaredType) superclass).asElement();
+        String name = element.getQualifiedName().toString();
+
+        return (name.startsWith("java.") || name.startsWith("javax.")) ? null : element;
+    }
+
+    private boolean hasAnnotation(Element element, Set<String> annotationNames) {
+        for (AnnotationMirror annotation : element.getAnnotationMirrors()) {
+            if (annotationNames.contains(getAnnotationName(annotation))) {
+                return true;
+            }
+        }
+
+        return false;
+    }
+
+    private String getAnnotationName(AnnotationMirror annotation) {
+        return ((TypeElement) annotation.getAnnotationType().asElement()).getQualifiedName().toString();
+    }
+
+    private void writeIndex() {
+        if (index.isEmpty()) {
+            return;
+        }
+
+        // keep the entries of the extensions compiled before (incremental compilation)
+        readPreviousIndex();
+
+        try {
+            FileObject file = processingEnv.getFiler().createResource(StandardLocation.CLASS_OUTPUT, "", INDEX_RESOURCE);
+            try (Writer writer = file.openWriter()) {
+                writer.write("# Generated by " + getClass().getName() + "\n");
+                for (Map.Entry<String, String> entry : index.entrySet()) {
+                    writer.write(escape(entry.getKey()));
+                    writer.write('=');
+                    writer.write(escape(entry.getValue()));
+                    writer.write('\n');
+                }
+            }
+        } catch (IOException e) {
+            processingEnv.getMessager().printMessage(Diagnostic.Kind.ERROR, "Cannot write " + INDEX_RESOURCE + ": " + e.getMessage());
+        }
+    }
+
+    private void readPreviousIndex() {
+        Properties previous = new Properties();
+        try {
+            FileObject file = processingEnv.getFiler().getResource(StandardLocation.CLASS_OUTPUT, "", INDEX_RESOURCE);
+            try (Reader reader = file.openReader(true)) {
+                previous.load(reader);
+            }
+        } catch (IOException | IllegalArgumentException e) {
+            // no previous index
+            return;
+        }
+
+        for (String key : previous.stringPropertyNames()) {
+            if (!key.endsWith(SPRING_KEY_SUFFIX)) {
+                // a key of a previous version of the index
+                continue;
+            }
+            String className = key.substring(0, key.length() - SPRING_KEY_SUFFIX.length());
+            if (!indexedClassNames.contains(className) && processingEnv.getElementUtils().getTypeElement(className.replace('$', '.')) != null) {
+                index.put(key, previous.getProperty(key));
+            }
+        }
+    }
+
+    private static String escape(String value) {
+        StringBuilder builder = new StringBuilder(value.length());
+        for (char c : value.toCharArray()) {
+            if (c == '\\' || c == '=' || c == ':' || c == '#' || c == '!' || c == ' ') {
+                builder.append('\\');
+            }
+            builder.append(c);
+        }
+
+        return builder.toString();
+    }
+
+}
@@ -0,0 +1,188 @@
+/*
+ * Copyright (C) 2012-present the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.pf4j.spring.processor;
+
+import com.google.testing.compile.Compilation;
+import com.google.testing.compile.JavaFileObjects;
+import org.junit.Test;
+
+import javax.tools.JavaFileObject;
+import javax.tools.StandardLocation;
+import java.io.IOException;
+import java.io.StringReader;
+import java.util.Optional;
+import java.util.Properties;
+
+import static com.google.testing.compile.CompilationSubject.assertThat;
+import static com.google.testing.compile.Compiler.javac;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+public class SpringExtensionIndexProcessorTest {
+
+    @Test
+    public void indexIsGeneratedForTheExtensions() throws IOException {
+        Compilation compilation = compile(
+            JavaFileObjects.forSourceLines("test.PlainExtension",
+                "package test;",
+                "@org.pf4j.Extension",
+                "public class PlainExtension {",
+                "    public static class Nested {",
+                "    }",
+                "    @org.pf4j.Extension",
+                "    public static class NestedExtension {",
+                "    }",
+                "}"));
+
+        String index = readIndex(compilation).orElseThrow(AssertionError::new);
+        assertTrue(index, index.startsWith("# Generated by " + SpringExtensionIndexProcessor.class.getName()));
+
+        Properties properties = load(index);
+        assertEquals(2, properties.size());
+        assertEquals("false", properties.getProperty("test.PlainExtension.spring"));
+        assertEquals("false", properties.getProperty("test.PlainExtension$NestedExtension.spring"));
+    }
+
+    @Test
+    public void noIndexIsGeneratedWithoutExtensions() {
+        Compilation compilation = compile(
+            JavaFileObjects.forSourceLines("test.NotAnExtension",
+                "package test;",
+                "public class NotAnExtension {",
+                "}"));
+
+        assertFalse(readIndex(compilation).isPresent());
+    }
+
+    @Test
+    public void autowiredFieldRequiresSpring() throws IOException {
+        assertRequiresSpring(true,
+            "    @org.springframework.beans.factory.annotation.Autowired",
+            "    private Object dependency;");
+    }
+
+    @Test
+    public void autowiredMethodRequiresSpring() throws IOException {
+        assertRequiresSpring(true,
+            "    @org.springframework.beans.factory.annotation.Autowired",
+            "    public void setDependency(Object dependency) {",
+            "    }");
+    }
+
+    @Test
+    public void autowiredConstructorRequiresSpring() throws IOException {
+        assertRequiresSpring(true,
+            "    public Extension() {",
+            "    }",
+            "    @org.springframework.beans.factory.annotation.Autowired",
+            "    public Extension(Object dependency) {",
+            "    }");
+    }
+
+    @Test
+    public void constructorWithParametersRequiresSpring() throws IOException {
+        assertRequiresSpring(true,
+            "    public Extension() {",
+            "    }",
+            "    public Extension(Object dependency) {",
+            "    }");
+    }
+
+    @Test
+    public void lifecycleCallbackRequiresSpring() throws IOException {
+        assertRequiresSpring(true,
+            "    @jakarta.annotation.PostConstruct",
+            "    public void init() {",
+            "    }");
+    }
+
+    @Test
+    public void constructorThatIsNotPublicRequiresSpring() throws IOException {
+        assertRequiresSpring(true,
+            "    Extension() {",
+            "    }");
+    }
+
+    @Test
+    public void memberWithoutInjectionDoesNotRequireSpring() throws IOException {
+        assertRequiresSpring(false,
+            "    private Object state;",
+            "    public void setState(Object state) {",
+            "        this.state = state;",
+            "    }");
+    }
+
+    @Test
+    public void injectionInASuperclassRequiresSpring() throws IOException {
+        Compilation compilation = compile(
+            JavaFileObjects.forSourceLines("test.BaseExtension",
+                "package test;",
+                "public abstract class BaseExtension {",
+                "    @org.springframework.beans.factory.annotation.Value(\"${name}\")",
+                "    protected String name;",
+                "}"),
+            JavaFileObjects.forSourceLines("test.Extension",
+                "package test;",
+                "@org.pf4j.Extension",
+                "public class Extension extends BaseExtension {",
+                "}"));
+
+        assertEquals("true", load(readIndex(compilation).orElseThrow(AssertionError::new)).getProperty("test.Extension.spring"));
+    }
+
+    private static void assertRequiresSpring(boolean expected, String... members) throws IOException {
+        String[] lines = new String[members.length + 4];
+        lines[0] = "package test;";
+        lines[1] = "@org.pf4j.Extension";
+        lines[2] = "public class Extension {";
+        System.arraycopy(members, 0, lines, 3, members.length);
+        lines[lines.length - 1] = "}";
+
+        Compilation compilation = compile(JavaFileObjects.forSourceLines("test.Extension", lines));
+
+        Properties index = load(readIndex(compilation).orElseThrow(AssertionError::new));
+        assertEquals(String.valueOf(expected), index.getProperty("test.Extension.spring"));
+    }
+
+    private static Compilation compile(JavaFileObject... sources) {
+        Compilation compilation = javac()
+            .withProcessors(new SpringExtensionIndexProcessor())
+            .compile(sources);
+        assertThat(compilation).succeeded();
+
+        return compilation;
+    }
+
+    private static Optional<String> readIndex(Compilation compilation) {
+        return compilation.generatedFile(StandardLocation.CLASS_OUTPUT, SpringExtensionIndexProcessor.INDEX_RESOURCE)
+            .map(file -> {
+                try {
+                    return file.getCharContent(true).toString();
+                } catch (IOException e) {
+                    throw new IllegalStateException(e);
+                }
+            });
+    }
+
+    private static Properties load(String index) throws IOException {
+        Properties properties = new Properties();
+        properties.load(new StringReader(index));
+
+        return properties;
+    }
+
+}
@@ -0,0 +1,79 @@
+/*
+ * Copyright (C) 2012-present the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.pf4j.spring;
+
+import org.pf4j.PluginWrapper;
+import org.springframework.beans.BeanUtils;
+import org.springframework.context.ApplicationContext;
+import org.springframework.context.ApplicationContextInitializer;
+import org.springframework.context.support.GenericApplicationContext;
+
+/**
+ * A {@link ChildContextSpringPlugin} whose application context is built from the initializer generated ahead-of-time
+ * (Spring AOT) for its configuration classes, with {@code org.pf4j.spring.aot.PluginAotProcessor}
+ * (module {@code pf4j-spring-aot}) when the plugin is built.
+ * <p>
+ * The generated initializer registers the bean definitions of the plugin directly, so no configuration class
+ * is parsed (no class scanning, no annotation introspection) when the plugin context is created.
+ * The initializer is looked up, with the plugin class loader, by the name of the first configuration class
+ * followed by {@link #INITIALIZER_SUFFIX}. If it's not found (the plugin was not processed),
+ * the application context is created as in {@link ChildContextSpringPlugin}.
+ */
+public abstract class AotSpringPlugin extends ChildContextSpringPlugin {
+
+    public static final String INITIALIZER_SUFFIX = "__ApplicationContextInitializer";
+
+    public AotSpringPlugin(PluginWrapper wrapper) {
+        super(wrapper);
+    }
+
+    @Override
+    protected ApplicationContext createApplicationContext() {
+        ApplicationContextInitializer<GenericApplicationContext> initializer = getInitializer();
+        if (initializer == null) {
+            log.debug("No AOT initializer found for plugin '{}', the configuration classes are processed", wrapper.getPluginId());
+            return super.createApplicationContext();
+        }
+
+        log.debug("Create the application context of plugin '{}' with '{}'", wrapper.getPluginId(), initializer.getClass().getName());
+        GenericApplicationContext applicationContext = new GenericApplicationContext();
+        applicationContext.setParent(getParentApplicationContext());
+        applicationContext.setClassLoader(wrapper.getPluginClassLoader());
+        applicationContext.setApplicationStartup(getApplicationStartup());
+        initializer.initialize(applicationContext);
+        applicationContext.refresh();
+
+        return applicationContext;
+    }
+
+    /**
+     * Returns the initializer generated for the configuration classes of the plugin,
+     * or {@code null} if the plugin was not processed ahead-of-time.
+     */
+    @SuppressWarnings("unchecked")
+    protected ApplicationContextInitializer<GenericApplicationContext> getInitializer() {
+        String initializerClassName = getConfigurationClasses()[0].getName() + INITIALIZER_SUFFIX;
+        Class<?> initializerClass;
+        try {
+            initializerClass = wrapper.getPluginClassLoader().loadClass(initializerClassName);
+        } catch (ClassNotFoundException e) {
+            return null;
+        }
+
+        return (ApplicationContextInitializer<GenericApplicationContext>) BeanUtils.instantiateClass(initializerClass);
+    }
+
+}
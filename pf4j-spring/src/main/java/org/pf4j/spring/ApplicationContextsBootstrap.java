@@ -0,0 +1,120 @@
+/*
+ * Copyright (C) 2012-present the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.pf4j.spring;
+
+import org.pf4j.PluginDependency;
+import org.pf4j.PluginRuntimeException;
+import org.pf4j.PluginWrapper;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Creates the application contexts of the given {@link SpringPlugin}s concurrently, on a bounded thread pool.
+ * <p>
+ * The plugins dependency graph is respected: the context of a plugin is created only after the contexts
+ * of all its dependencies were created. The contexts of independent plugins are created in parallel.
+ * <p>
+ * The result doesn't depend on scheduling. Each plugin gets its own context and, if some contexts cannot be
+ * created, the reported failure is the one of the first plugin (in the given order) that failed.
+ */
+public class ApplicationContextsBootstrap {
+
+    private static final Logger log = LoggerFactory.getLogger(ApplicationContextsBootstrap.class);
+
+    private final int threads;
+
+    public ApplicationContextsBootstrap(int threads) {
+        if (threads < 1) {
+            throw new IllegalArgumentException("The number of threads must be greater than zero");
+        }
+
+        this.threads = threads;
+    }
+
+    /**
+     * Creates the application contexts of the given plugins.
+     * The plugins list must be in dependency order (as {@code pluginManager.getStartedPlugins()} is).
+     *
+     * @throws PluginRuntimeException if the application context of a plugin cannot be created
+     */
+    public void bootstrap(List<PluginWrapper> plugins) {
+        if (plugins.isEmpty()) {
+            return;
+        }
+
+        log.debug("Create the application contexts of {} plugins using {} threads", plugins.size(), threads);
+        long start = System.nanoTime();
+        ExecutorService executor = Executors.newFixedThreadPool(Math.min(threads, plugins.size()), new BootstrapThreadFactory());
+        try {
+            Map<String, CompletableFuture<Void>> futures = new LinkedHashMap<>();
+            for (PluginWrapper plugin : plugins) {
+                CompletableFuture<?>[] dependencies = plugin.getDescriptor().getDependencies().stream()
+                    .map(PluginDependency::getPluginId)
+                    .map(futures::get)
+                    .filter(Objects::nonNull)
+                    .toArray(CompletableFuture[]::new);
+                CompletableFuture<Void> future = CompletableFuture.allOf(dependencies);
+                if (plugin.getPlugin() instanceof SpringPlugin) {
+                    future = future.thenRunAsync(() -> createApplicationContext(plugin), executor);
+                }
+                futures.put(plugin.getPluginId(), future);
+            }
+
+            for (Map.Entry<String, CompletableFuture<Void>> entry : futures.entrySet()) {
+                try {
+                    entry.getValue().join();
+                } catch (CompletionException e) {
+                    throw new PluginRuntimeException(e.getCause(), "Cannot create the application context of plugin '{}'", entry.getKey());
+                }
+            }
+        } finally {
+            executor.shutdownNow();
+        }
+
+        log.debug("Created the application contexts of {} plugins in {} ms", plugins.size(), (System.nanoTime() - start) / 1_000_000);
+    }
+
+    private void createApplicationContext(PluginWrapper plugin) {
+        log.debug("Create the application context of plugin '{}'", plugin.getPluginId());
+        ((SpringPlugin) plugin.getPlugin()).getApplicationContext();
+    }
+
+    private static class BootstrapThreadFactory implements ThreadFactory {
+
+        private final AtomicInteger count = new AtomicInteger();
+
+        @Override
+        public Thread newThread(Runnable runnable) {
+            Thread thread = new Thread(runnable, "pf4j-spring-bootstrap-" + count.incrementAndGet());
+            thread.setDaemon(true);
+
+            return thread;
+        }
+
+    }
+
+}
@@ -0,0 +1,97 @@
+/*
+ * Copyright (C) 2012-present the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.pf4j.spring;
+
+import org.pf4j.PluginManager;
+import org.pf4j.PluginWrapper;
+import org.springframework.context.ApplicationContext;
+import org.springframework.context.annotation.AnnotationConfigApplicationContext;
+import org.springframework.context.annotation.AnnotationConfigUtils;
+
+/**
+ * A {@link SpringPlugin} whose application context is a child of the host application context
+ * (see {@link SpringPluginManager#getApplicationContext()}).
+ * <p>
+ * The beans of the host are resolvable (and injectable) in the plugin context without being declared again,
+ * while the beans of the plugin stay invisible to the host and to the other plugins.
+ * The class metadata read while the configuration classes are parsed (the classes imported by name,
+ * for example the configurations selected by the {@code @EnableXxx} annotations, and their super types)
+ * is cached, and the metadata of the application classes is shared by all the plugins (see {@link SharedMetadataReaderFactory}),
+ * so a class of the application is read only once.
+ * <p>
+ * As in any Spring context hierarchy, the events published in the plugin context
+ * (for example {@code ContextRefreshedEvent}) are published in the host context too.
+ * <p>
+ * The plugin provides only its configuration classes:
+ * <pre>{@code
+ *     public class HelloPlugin extends ChildContextSpringPlugin {
+ *
+ *         public HelloPlugin(PluginWrapper wrapper) {
+ *             super(wrapper);
+ *         }
+ *
+ *         @Override
+ *         protected Class<?>[] getConfigurationClasses() {
+ *             return new Class<?>[] { SpringConfiguration.class };
+ *         }
+ *
+ *     }
+ * }</pre>
+ */
+public abstract class ChildContextSpringPlugin extends SpringPlugin {
+
+    public ChildContextSpringPlugin(PluginWrapper wrapper) {
+        super(wrapper);
+    }
+
+    @Override
+    protected ApplicationContext createApplicationContext() {
+        AnnotationConfigApplicationContext applicationContext = new AnnotationConfigApplicationContext();
+        applicationContext.setParent(getParentApplicationContext());
+        applicationContext.setClassLoader(wrapper.getPluginClassLoader());
+        applicationContext.setApplicationStartup(getApplicationStartup());
+
+        PluginManager pluginManager = wrapper.getPluginManager();
+        if (pluginManager instanceof SpringPluginManager) {
+            applicationContext.getBeanDefinition(AnnotationConfigUtils.CONFIGURATION_ANNOTATION_PROCESSOR_BEAN_NAME)
+                .getPropertyValues()
+                .add("metadataReaderFactory", ((SpringPluginManager) pluginManager).createMetadataReaderFactory(wrapper.getPluginClassLoader()));
+        }
+
+        applicationContext.register(getConfigurationClasses());
+        applicationContext.refresh();
+
+        return applicationContext;
+    }
+
+    /**
+     * Returns the parent of the application context of the plugin, by default the host application context
+     * (or {@code null} if the plugin manager is not a {@link SpringPluginManager}).
+     */
+    protected ApplicationContext getParentApplicationContext() {
+        PluginManager pluginManager = wrapper.getPluginManager();
+
+        return (pluginManager instanceof SpringPluginManager)
+            ? ((SpringPluginManager) pluginManager).getApplicationContext()
+            : null;
+    }
+
+    /**
+     * Returns the (annotated) configuration classes of the plugin, registered in the plugin context.
+     */
+    protected abstract Class<?>[] getConfigurationClasses();
+
+}
@@ -0,0 +1,124 @@
+/*
+ * Copyright (C) 2012-present the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.pf4j.spring;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.net.URL;
+import java.util.Collections;
+import java.util.Enumeration;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.Properties;
+
+/**
+ * The Spring injection metadata of the extensions, generated at build time by the {@code pf4j-spring-processor}
+ * annotation processor in {@value #INDEX_RESOURCE}.
+ * <p>
+ * With this index, {@link SpringExtensionFactory} creates the extensions that don't need Spring
+ * (no injection points and no lifecycle callbacks) without resolving (and creating) an application context.
+ * An extension that is not in the index is handled as before.
+ * The index doesn't replace the discovery of the extensions (PF4J's {@code extensions.idx}) nor the loading of their classes.
+ */
+public class ExtensionIndex {
+
+    private static final Logger log = LoggerFactory.getLogger(ExtensionIndex.class);
+
+    public static final String INDEX_RESOURCE = "META-INF/pf4j-spring-extensions.properties";
+
+    public static final ExtensionIndex EMPTY = new ExtensionIndex(Collections.emptyMap());
+
+    private final Map<String, Entry> entries;
+
+    private ExtensionIndex(Map<String, Entry> entries) {
+        this.entries = entries;
+    }
+
+    /**
+     * Reads the indexes visible from the given class loader.
+     */
+    public static ExtensionIndex load(ClassLoader classLoader) {
+        Properties properties = new Properties();
+        try {
+            Enumeration<URL> urls = classLoader.getResources(INDEX_RESOURCE);
+            while (urls.hasMoreElements()) {
+                URL url = urls.nextElement();
+                log.debug("Read extension index '{}'", url);
+                try (InputStream input = url.openStream()) {
+                    properties.load(input);
+                }
+            }
+        } catch (IOException e) {
+            log.error("Cannot read the extension index", e);
+            return EMPTY;
+        }
+
+        if (properties.isEmpty()) {
+            return EMPTY;
+        }
+
+        Map<String, Entry> entries = new HashMap<>();
+        for (String key : properties.stringPropertyNames()) {
+            String className = key.substring(0, key.lastIndexOf('.'));
+            entries.computeIfAbsent(className, name -> new Entry(name, properties));
+        }
+
+        return new ExtensionIndex(entries);
+    }
+
+    /**
+     * Returns the entry of an extension class, or {@code null} if the class is not indexed.
+     */
+    public Entry getEntry(String extensionClassName) {
+        return entries.get(extensionClassName);
+    }
+
+    public int size() {
+        return entries.size();
+    }
+
+    /**
+     * The metadata of an extension.
+     */
+    public static class Entry {
+
+        private final String extensionClassName;
+        private final boolean spring;
+
+        Entry(String extensionClassName, Properties properties) {
+            this.extensionClassName = extensionClassName;
+            // when in doubt Spring is used
+            spring = !"false".equals(properties.getProperty(extensionClassName + ".spring"));
+        }
+
+        public String getExtensionClassName() {
+            return extensionClassName;
+        }
+
+        /**
+         * Returns {@code false} if the extension has no injection points and no lifecycle callbacks,
+         * so that creating it with Spring is the same as calling its constructor.
+         */
+        public boolean requiresSpring() {
+            return spring;
+        }
+
+    }
+
+}
@@ -15,14 +15,33 @@
  */
 package org.pf4j.spring;
 
+import org.pf4j.Extension;
+import org.pf4j.PluginRuntimeException;
 import org.pf4j.PluginWrapper;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.FactoryBean;
+import org.springframework.beans.factory.ListableBeanFactory;
 import org.springframework.beans.factory.support.AbstractAutowireCapableBeanFactory;
+import org.springframework.beans.factory.support.AbstractBeanDefinition;
+import org.springframework.beans.factory.support.BeanDefinitionRegistry;
+import org.springframework.beans.factory.support.RootBeanDefinition;
+import org.springframework.core.metrics.StartupStep;
 
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.LinkedHashSet;
 import java.util.List;
 import java.util.Map;
 import java.util.Set;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.atomic.AtomicInteger;
 
 /**
  * @author Decebal Suiu
@@ -33,57 +52,375 @@ public class ExtensionsInjector {
 
     protected final SpringPluginManager springPluginManager;
     protected final AbstractAutowireCapableBeanFactory beanFactory;
+    protected final InjectionMode injectionMode;
+
+    /**
+     * The names of the beans registered for the extensions of each plugin (key is the plugin id).
+     */
+    private final Map<String, Set<String>> pluginBeanNames = new ConcurrentHashMap<>();
+
+    /**
+     * The types (with their super classes) of the existing beans, built once per {@link #injectExtensions()}.
+     * It's used to check in constant time if an extension already exists as bean.
+     */
+    private Set<Class<?>> beanTypes;
 
     public ExtensionsInjector(SpringPluginManager springPluginManager, AbstractAutowireCapableBeanFactory beanFactory) {
+        this(springPluginManager, beanFactory, InjectionMode.EAGER);
+    }
+
+    public ExtensionsInjector(SpringPluginManager springPluginManager, AbstractAutowireCapableBeanFactory beanFactory, InjectionMode injectionMode) {
         this.springPluginManager = springPluginManager;
         this.beanFactory = beanFactory;
+        this.injectionMode = injectionMode;
     }
 
     public void injectExtensions() {
-        // add extensions from classpath (non plugin)
-        Set<String> extensionClassNames = springPluginManager.getExtensionClassNames(null);
-        for (String extensionClassName : extensionClassNames) {
+        long start = System.nanoTime();
+        StartupStep step = springPluginManager.getApplicationStartup().start("pf4j.extensions.inject");
+        beanTypes = indexBeanTypes();
+        try {
+            injectSystemExtensions();
+
+            // add extensions for each started plugin
+            List<PluginWrapper> startedPlugins = springPluginManager.getStartedPlugins();
+            if (injectionMode == InjectionMode.PARALLEL && startedPlugins.size() > 1) {
+                injectExtensionsInParallel(startedPlugins);
+            } else {
+                for (PluginWrapper plugin : startedPlugins) {
+                    injectExtensions(plugin);
+                }
+            }
+        } finally {
+            beanTypes = null;
+            step.end();
+        }
+
+        log.info("Injected extensions as beans in {} ms", (System.nanoTime() - start) / 1_000_000);
+    }
+
+    /**
+     * Register the extensions from classpath (that don't belong to a plugin) as beans.
+     */
+    public void injectSystemExtensions() {
+        long start = System.nanoTime();
+        int count = 0;
+        for (String extensionClassName : springPluginManager.getExtensionClassNames(null)) {
             try {
                 log.debug("Register extension '{}' as bean", extensionClassName);
                 Class<?> extensionClass = getClass().getClassLoader().loadClass(extensionClassName);
+                boolean registered = beanFactory.containsLocalBean(extensionClassName);
+                registerExtension(extensionClass);
+                if (!registered && beanFactory.containsLocalBean(extensionClassName)) {
+                    count++;
+                }
+            } catch (ClassNotFoundException e) {
+                log.error(e.getMessage(), e);
+            }
+        }
+        springPluginManager.getMetrics().extensionsInjected(null, count, System.nanoTime() - start);
+    }
+
+    /**
+     * Register the extensions of a plugin as beans.
+     * Use this method to register the extensions of a plugin started after {@link #injectExtensions()}.
+     */
+    public void injectExtensions(PluginWrapper plugin) {
+        long start = System.nanoTime();
+        StartupStep step = springPluginManager.getApplicationStartup().start("pf4j.plugin.extensions.inject")
+            .tag("pluginId", plugin.getPluginId());
+        log.debug("Registering extensions of the plugin '{}' as beans", plugin.getPluginId());
+        Set<String> beanNames = new LinkedHashSet<>();
+        Set<String> extensionClassNames = springPluginManager.getExtensionClassNames(plugin.getPluginId());
+        for (String extensionClassName : extensionClassNames) {
+            try {
+                log.debug("Register extension '{}' as bean", extensionClassName);
+                Class<?> extensionClass = plugin.getPluginClassLoader().loadClass(extensionClassName);
+                boolean registered = beanFactory.containsLocalBean(extensionClassName);
                 registerExtension(extensionClass);
+                if (!registered && beanFactory.containsLocalBean(extensionClassName)) {
+                    beanNames.add(extensionClassName);
+                }
             } catch (ClassNotFoundException e) {
                 log.error(e.getMessage(), e);
             }
         }
 
-        // add extensions for each started plugin
-        List<PluginWrapper> startedPlugins = springPluginManager.getStartedPlugins();
-        for (PluginWrapper plugin : startedPlugins) {
-            log.debug("Registering extensions of the plugin '{}' as beans", plugin.getPluginId());
-            extensionClassNames = springPluginManager.getExtensionClassNames(plugin.getPluginId());
-            for (String extensionClassName : extensionClassNames) {
+        addBeanNames(plugin.getPluginId(), beanNames);
+        step.tag("extensions", String.valueOf(beanNames.size())).end();
+        springPluginManager.getMetrics().extensionsInjected(plugin.getPluginId(), beanNames.size(), System.nanoTime() - start);
+    }
+
+    /**
+     * Creates the extensions of the given plugins concurrently (see {@link InjectionMode#PARALLEL})
+     * and registers them as singletons, in the order of the plugins.
+     *
+     * @throws PluginRuntimeException if the extensions of a plugin cannot be created
+     * (the first plugin in the given order that failed)
+     */
+    private void injectExtensionsInParallel(List<PluginWrapper> plugins) {
+        log.debug("Create the extensions of {} plugins in parallel", plugins.size());
+        // the workers read a snapshot of the bean types, while this thread adds the registered extensions to the index
+        Set<Class<?>> beanTypesSnapshot = (beanTypes != null) ? Collections.unmodifiableSet(new HashSet<>(beanTypes)) : null;
+        ExecutorService executor = createExecutor(plugins.size());
+        try {
+            Map<String, CompletableFuture<CreatedExtensions>> futures = new LinkedHashMap<>();
+            for (PluginWrapper plugin : plugins) {
+                futures.put(plugin.getPluginId(), CompletableFuture.supplyAsync(() -> createExtensions(plugin, beanTypesSnapshot), executor));
+            }
+
+            for (Map.Entry<String, CompletableFuture<CreatedExtensions>> entry : futures.entrySet()) {
+                CreatedExtensions createdExtensions;
                 try {
-                    log.debug("Register extension '{}' as bean", extensionClassName);
-                    Class<?> extensionClass = plugin.getPluginClassLoader().loadClass(extensionClassName);
-                    registerExtension(extensionClass);
-                } catch (ClassNotFoundException e) {
-                    log.error(e.getMessage(), e);
+                    createdExtensions = entry.getValue().join();
+                } catch (CompletionException e) {
+                    throw new PluginRuntimeException(e.getCause(), "Cannot create the extensions of plugin '{}'", entry.getKey());
+                }
+                int count = registerSingletons(entry.getKey(), createdExtensions.extensions);
+                springPluginManager.getMetrics().extensionsInjected(entry.getKey(), count, createdExtensions.duration);
+            }
+        } finally {
+            executor.shutdownNow();
+        }
+    }
+
+    /**
+     * Loads the extension classes of a plugin and creates the extensions that don't exist as beans
+     * (in the given index of the bean types).
+     * It runs concurrently with the same method for the other plugins, so it doesn't touch the bean factory
+     * and it's given a snapshot of the index; the extensions are checked again when they are registered.
+     */
+    private CreatedExtensions createExtensions(PluginWrapper plugin, Set<Class<?>> beanTypes) {
+        long start = System.nanoTime();
+        StartupStep step = springPluginManager.getApplicationStartup().start("pf4j.plugin.extensions.create")
+            .tag("pluginId", plugin.getPluginId());
+        log.debug("Creating extensions of the plugin '{}'", plugin.getPluginId());
+        Map<Class<?>, Object> extensions = new LinkedHashMap<>();
+        for (String extensionClassName : springPluginManager.getExtensionClassNames(plugin.getPluginId())) {
+            try {
+                Class<?> extensionClass = plugin.getPluginClassLoader().loadClass(extensionClassName);
+                if (!existsAsBean(extensionClass, beanTypes)) {
+                    extensions.put(extensionClass, springPluginManager.getExtensionFactory().create(extensionClass));
                 }
+            } catch (ClassNotFoundException e) {
+                log.error(e.getMessage(), e);
+            }
+        }
+        step.tag("extensions", String.valueOf(extensions.size())).end();
+
+        return new CreatedExtensions(extensions, System.nanoTime() - start);
+    }
+
+    private int registerSingletons(String pluginId, Map<Class<?>, Object> extensions) {
+        Set<String> beanNames = new LinkedHashSet<>();
+        for (Map.Entry<Class<?>, Object> entry : extensions.entrySet()) {
+            Class<?> extensionClass = entry.getKey();
+            // the same extension class can be visible from two plugins
+            if (existsAsBean(extensionClass)) {
+                log.debug("Bean registeration aborted! Extension '{}' already existed as bean!", extensionClass.getName());
+                continue;
+            }
+
+            log.debug("Register extension '{}' as bean", extensionClass.getName());
+            beanFactory.registerSingleton(extensionClass.getName(), entry.getValue());
+            if (beanTypes != null) {
+                indexBeanType(beanTypes, extensionClass);
+            }
+            beanNames.add(extensionClass.getName());
+        }
+
+        addBeanNames(pluginId, beanNames);
+
+        return beanNames.size();
+    }
+
+    private void addBeanNames(String pluginId, Set<String> beanNames) {
+        pluginBeanNames.merge(pluginId, beanNames, (oldNames, newNames) -> {
+            oldNames.addAll(newNames);
+            return oldNames;
+        });
+    }
+
+    /**
+     * Unregister (and destroy) the beans registered for the extensions of a plugin.
+     * Use this method when the plugin is stopped.
+     */
+    public void ejectExtensions(String pluginId) {
+        Set<String> beanNames = pluginBeanNames.remove(pluginId);
+        if (beanNames == null) {
+            return;
+        }
+
+        log.debug("Unregistering extensions of the plugin '{}'", pluginId);
+        for (String beanName : beanNames) {
+            log.debug("Unregister extension bean '{}'", beanName);
+            if ((beanFactory instanceof BeanDefinitionRegistry) && ((BeanDefinitionRegistry) beanFactory).containsBeanDefinition(beanName)) {
+                // it also destroys the created extension
+                ((BeanDefinitionRegistry) beanFactory).removeBeanDefinition(beanName);
+            } else {
+                beanFactory.destroySingleton(beanName);
             }
         }
     }
 
+    /**
+     * Returns the names of the beans registered for the extensions of a plugin.
+     */
+    public Set<String> getExtensionBeanNames(String pluginId) {
+        return Collections.unmodifiableSet(pluginBeanNames.getOrDefault(pluginId, Collections.emptySet()));
+    }
+
     /**
      * Register an extension as bean.
-     * Current implementation register extension as singleton using {@code beanFactory.registerSingleton()}.
+     * In {@link InjectionMode#EAGER} mode, current implementation register extension as singleton using {@code beanFactory.registerSingleton()}.
      * The extension instance is created using {@code pluginManager.getExtensionFactory().create(extensionClass)}.
+     * In {@link InjectionMode#LAZY} mode, the extension is registered as a lazy bean definition
+     * (see {@link #registerLazyExtension(Class)}).
      * The bean name is the extension class name.
      * Override this method if you wish other register strategy.
      */
     protected void registerExtension(Class<?> extensionClass) {
-        Map<String, ?> extensionBeanMap = springPluginManager.getApplicationContext().getBeansOfType(extensionClass);
-        if (extensionBeanMap.isEmpty()) {
-            Object extension = springPluginManager.getExtensionFactory().create(extensionClass);
-            beanFactory.registerSingleton(extensionClass.getName(), extension);
+        if (!existsAsBean(extensionClass)) {
+            if (injectionMode == InjectionMode.LAZY && beanFactory instanceof BeanDefinitionRegistry) {
+                registerLazyExtension(extensionClass);
+            } else {
+                Object extension = springPluginManager.getExtensionFactory().create(extensionClass);
+                beanFactory.registerSingleton(extensionClass.getName(), extension);
+            }
+            if (beanTypes != null) {
+                indexBeanType(beanTypes, extensionClass);
+            }
         } else {
             log.debug("Bean registeration aborted! Extension '{}' already existed as bean!", extensionClass.getName());
         }
     }
 
+    /**
+     * Register an extension as a lazy bean definition backed by a {@link FactoryBean}.
+     * The extension is created, using {@code pluginManager.getExtensionFactory().create(extensionClass)},
+     * on the first lookup of the bean. The extension instance is not autowired again by the bean factory.
+     * The bean is ordered by the ordinal of the extension (see {@link Extension#ordinal()}).
+     */
+    protected void registerLazyExtension(Class<?> extensionClass) {
+        RootBeanDefinition beanDefinition = new RootBeanDefinition(ExtensionFactoryBean.class,
+            () -> new ExtensionFactoryBean<>(springPluginManager, extensionClass));
+        beanDefinition.setLazyInit(true);
+        // the type of the product is known without creating the factory bean
+        beanDefinition.setAttribute(FactoryBean.OBJECT_TYPE_ATTRIBUTE, extensionClass);
+        Extension extensionAnnotation = extensionClass.getAnnotation(Extension.class);
+        if (extensionAnnotation != null) {
+            // the lazy beans are injected in collections in the order of the extensions
+            beanDefinition.setAttribute(AbstractBeanDefinition.ORDER_ATTRIBUTE, extensionAnnotation.ordinal());
+        }
+        ((BeanDefinitionRegistry) beanFactory).registerBeanDefinition(extensionClass.getName(), beanDefinition);
+    }
+
+    /**
+     * Checks if a bean of the given extension type exists, without instantiating any bean.
+     */
+    protected boolean existsAsBean(Class<?> extensionClass) {
+        return existsAsBean(extensionClass, beanTypes);
+    }
+
+    private boolean existsAsBean(Class<?> extensionClass, Set<Class<?>> beanTypes) {
+        if (beanTypes != null) {
+            return beanTypes.contains(extensionClass);
+        }
+
+        return springPluginManager.getApplicationContext().getBeanNamesForType(extensionClass, true, false).length > 0;
+    }
+
+    /**
+     * Builds, in one pass and without instantiating beans, the set with the types of the existing beans.
+     * Each type is indexed with its super classes, so that a bean is found by any of its (super) classes.
+     */
+    private Set<Class<?>> indexBeanTypes() {
+        if (!(beanFactory instanceof ListableBeanFactory)) {
+            return null;
+        }
+
+        Set<String> beanNames = new LinkedHashSet<>(Arrays.asList(((ListableBeanFactory) beanFactory).getBeanDefinitionNames()));
+        beanNames.addAll(Arrays.asList(beanFactory.getSingletonNames()));
+
+        Set<Class<?>> types = new HashSet<>();
+        for (String beanName : beanNames) {
+            indexBeanType(types, beanFactory.getType(beanName, false));
+        }
+        log.debug("Indexed {} types of {} beans", types.size(), beanNames.size());
+
+        return types;
+    }
+
+    /**
+     * Adds the given type of a bean and its super classes to the index of the bean types.
+     */
+    private static void indexBeanType(Set<Class<?>> types, Class<?> type) {
+        // the super classes of an already indexed type are indexed too
+        while (type != null && type != Object.class && types.add(type)) {
+            type = type.getSuperclass();
+        }
+    }
+
+    /**
+     * Creates the executor of the parallel injection, with a virtual thread per task when the runtime supports
+     * virtual threads (Java 21+), else with a (daemon) platform thread per task.
+     * The tasks are not bounded by the processors: the constructors of the extensions mostly wait (on I/O),
+     * and there is one task per started plugin.
+     */
+    private static ExecutorService createExecutor(int tasks) {
+        try {
+            return (ExecutorService) Executors.class.getMethod("newVirtualThreadPerTaskExecutor").invoke(null);
+        } catch (ReflectiveOperationException e) {
+            log.debug("Virtual threads are not available, {} platform threads are used", tasks);
+            AtomicInteger count = new AtomicInteger();
+            return Executors.newFixedThreadPool(tasks, runnable -> {
+                Thread thread = new Thread(runnable, "pf4j-spring-inject-" + count.incrementAndGet());
+                thread.setDaemon(true);
+
+                return thread;
+            });
+        }
+    }
+
+    /**
+     * The extensions created for a plugin, in the order of their classes, and the time spent to create them.
+     */
+    private static class CreatedExtensions {
+
+        private final Map<Class<?>, Object> extensions;
+        private final long duration;
+
+        CreatedExtensions(Map<Class<?>, Object> extensions, long duration) {
+            this.extensions = extensions;
+            this.duration = duration;
+        }
+
+    }
+
+    /**
+     * Creates (once) an extension using the extension factory of the plugin manager.
+     */
+    static class ExtensionFactoryBean<T> implements FactoryBean<T> {
+
+        private final SpringPluginManager springPluginManager;
+        private final Class<T> extensionClass;
+
+        ExtensionFactoryBean(SpringPluginManager springPluginManager, Class<T> extensionClass) {
+            this.springPluginManager = springPluginManager;
+            this.extensionClass = extensionClass;
+        }
+
+        @Override
+        public T getObject() {
+            log.debug("Create extension '{}' on first lookup", extensionClass.getName());
+            return springPluginManager.getExtensionFactory().create(extensionClass);
+        }
+
+        @Override
+        public Class<?> getObjectType() {
+            return extensionClass;
+        }
+
+    }
+
 }
@@ -0,0 +1,44 @@
+/*
+ * Copyright (C) 2012-present the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.pf4j.spring;
+
+/**
+ * The way {@link ExtensionsInjector} exposes the extensions as Spring beans.
+ */
+public enum InjectionMode {
+
+    /**
+     * Each extension is created when it's injected and it's registered as singleton.
+     */
+    EAGER,
+
+    /**
+     * Each extension is registered as a (lazy) bean definition. The extension (and the application context
+     * of its plugin) is created on the first lookup of the bean.
+     */
+    LAZY,
+
+    /**
+     * As {@link #EAGER}, but when {@link ExtensionsInjector#injectExtensions()} is called the extension classes
+     * of the started plugins are loaded and their extensions are created concurrently (a task per plugin),
+     * on virtual threads when the runtime supports them (Java 21+), else on a platform thread per plugin.
+     * The extensions are then registered as singletons sequentially, in the order of the plugins and of their extensions,
+     * so the result doesn't depend on scheduling.
+     * The extensions of a plugin started later are injected as in {@link #EAGER} mode.
+     */
+    PARALLEL
+
+}
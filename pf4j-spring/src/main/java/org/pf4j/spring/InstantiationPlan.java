@@ -0,0 +1,161 @@
+/*
+ * Copyright (C) 2012-present the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.pf4j.spring;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.lang.invoke.CallSite;
+import java.lang.invoke.LambdaMetafactory;
+import java.lang.invoke.MethodHandle;
+import java.lang.invoke.MethodHandles;
+import java.lang.invoke.MethodType;
+import java.lang.reflect.Constructor;
+import java.lang.reflect.InvocationTargetException;
+import java.util.Comparator;
+import java.util.function.Supplier;
+import java.util.stream.Stream;
+
+/**
+ * A precompiled plan to instantiate a class by calling its public constructor with the shortest parameter list,
+ * with {@code null} for each parameter.
+ * <p>
+ * The plan is computed once per class (and it's released with the class). For a no-arg constructor the plan is a
+ * {@link Supplier} generated with {@link LambdaMetafactory}, so the call costs about as much as a direct {@code new}.
+ * Otherwise the constructor is called via a {@link MethodHandle} with the {@code null} arguments already bound
+ * (also when the supplier cannot be generated, for example for a class of a plugin, that is in another module).
+ * If none of these can be generated, the plan uses standard Java reflection.
+ */
+class InstantiationPlan {
+
+    private static final Logger log = LoggerFactory.getLogger(InstantiationPlan.class);
+
+    private static final ClassValue<InstantiationPlan> plans = new ClassValue<InstantiationPlan>() {
+
+        @Override
+        protected InstantiationPlan computeValue(Class<?> type) {
+            return new InstantiationPlan(type);
+        }
+
+    };
+
+    private final Constructor<?> constructor;
+    private final Supplier<?> supplier;
+    private final MethodHandle methodHandle;
+
+    private InstantiationPlan(Class<?> type) {
+        constructor = Stream.of(type.getConstructors())
+            .min(Comparator.comparing(Constructor::getParameterCount))
+            // An extension class is required to have at least one public constructor.
+            .orElseThrow(() -> new IllegalArgumentException("Extension class '" + type.getName()
+                                                            + "' must have at least one public constructor."));
+
+        MethodHandles.Lookup lookup = null;
+        MethodHandle methodHandle = null;
+        try {
+            lookup = MethodHandles.privateLookupIn(type, MethodHandles.lookup());
+            MethodHandle constructorHandle = lookup.unreflectConstructor(constructor);
+            methodHandle = MethodHandles.insertArguments(constructorHandle, 0, new Object[constructor.getParameterCount()])
+                .asType(MethodType.methodType(Object.class));
+        } catch (Throwable t) {
+            // for example a primitive parameter cannot be bound to 'null'
+            log.debug("Cannot generate an instantiation plan for '{}', standard Java reflection will be used", type.getName(), t);
+        }
+
+        Supplier<?> supplier = null;
+        if (methodHandle != null && constructor.getParameterCount() == 0) {
+            try {
+                CallSite callSite = LambdaMetafactory.metafactory(lookup, "get", MethodType.methodType(Supplier.class),
+                    MethodType.methodType(Object.class), lookup.unreflectConstructor(constructor), MethodType.methodType(type));
+                supplier = (Supplier<?>) callSite.getTarget().invoke();
+            } catch (Throwable t) {
+                // for example a class of a plugin is in another module, so the lookup has no full privilege access
+                log.trace("Cannot generate a supplier for '{}', a method handle will be used", type.getName());
+            }
+        }
+        this.supplier = supplier;
+        this.methodHandle = (supplier != null) ? null : methodHandle;
+    }
+
+    /**
+     * Returns the plan of the given class.
+     *
+     * @throws IllegalArgumentException if the given class has no public constructor
+     */
+    static InstantiationPlan of(Class<?> type) {
+        return plans.get(type);
+    }
+
+    Constructor<?> getConstructor() {
+        return constructor;
+    }
+
+    Strategy getStrategy() {
+        if (supplier != null) {
+            return Strategy.SUPPLIER;
+        }
+
+        return (methodHandle != null) ? Strategy.METHOD_HANDLE : Strategy.REFLECTION;
+    }
+
+    /**
+     * Creates a new instance.
+     * As with {@link Constructor#newInstance(Object...)}, an exception thrown by the constructor is wrapped
+     * in an {@link InvocationTargetException}.
+     */
+    Object newInstance() throws InstantiationException, IllegalAccessException, InvocationTargetException {
+        if (supplier != null) {
+            try {
+                return supplier.get();
+            } catch (Throwable t) {
+                throw new InvocationTargetException(t);
+            }
+        }
+
+        if (methodHandle != null) {
+            try {
+                return (Object) methodHandle.invokeExact();
+            } catch (Throwable t) {
+                throw new InvocationTargetException(t);
+            }
+        }
+
+        return constructor.newInstance(new Object[constructor.getParameterCount()]);
+    }
+
+    /**
+     * How the instances are created (see {@link #newInstance()}).
+     */
+    enum Strategy {
+
+        /**
+         * A {@link Supplier} generated with {@link LambdaMetafactory}, for a no-arg constructor.
+         */
+        SUPPLIER,
+
+        /**
+         * A {@link MethodHandle} of the constructor, with the {@code null} arguments bound.
+         */
+        METHOD_HANDLE,
+
+        /**
+         * {@link Constructor#newInstance(Object...)}.
+         */
+        REFLECTION
+
+    }
+
+}
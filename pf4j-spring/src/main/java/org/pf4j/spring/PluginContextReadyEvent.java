@@ -0,0 +1,50 @@
+/*
+ * Copyright (C) 2012-present the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.pf4j.spring;
+
+import org.pf4j.PluginWrapper;
+import org.springframework.context.ApplicationContext;
+import org.springframework.context.ApplicationEvent;
+
+/**
+ * Published in the host application context when the application context of a {@link SpringPlugin}
+ * was created by the asynchronous startup (see {@link SpringPluginManager#setAsyncStartup(boolean)}).
+ * The source of the event is the plugin manager.
+ */
+public class PluginContextReadyEvent extends ApplicationEvent {
+
+    private final PluginWrapper plugin;
+    private final ApplicationContext pluginApplicationContext;
+
+    public PluginContextReadyEvent(SpringPluginManager pluginManager, PluginWrapper plugin, ApplicationContext pluginApplicationContext) {
+        super(pluginManager);
+
+        this.plugin = plugin;
+        this.pluginApplicationContext = pluginApplicationContext;
+    }
+
+    public PluginWrapper getPlugin() {
+        return plugin;
+    }
+
+    /**
+     * Returns the application context of the plugin.
+     */
+    public ApplicationContext getPluginApplicationContext() {
+        return pluginApplicationContext;
+    }
+
+}
@@ -0,0 +1,125 @@
+/*
+ * Copyright (C) 2012-present the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.pf4j.spring;
+
+import org.pf4j.ExtensionWrapper;
+import org.pf4j.PluginRuntimeException;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.InjectionPoint;
+import org.springframework.core.ResolvableType;
+
+import java.util.Iterator;
+import java.util.List;
+import java.util.stream.Collectors;
+import java.util.stream.Stream;
+
+/**
+ * A lazy view of the extensions of an extension point, backed by a {@link SpringPluginManager}.
+ * Unlike an injected {@code List}, each call looks up the extensions of the plugins started at that moment
+ * and an extension is created (by the extension factory of the plugin manager) only when the stream reaches it,
+ * so the extensions not used are never created:
+ * <pre>{@code
+ * @Autowired
+ * private PluginExtensions<Greeting> greetings;
+ *
+ * greetings.stream().findFirst();
+ * greetings.stream("hello-plugin").forEach(greeting -> ...);
+ * }</pre>
+ * The extensions are returned in ordinal order (see {@link org.pf4j.Extension#ordinal()}), without the extensions
+ * of the plugins not ready (see {@link SpringPluginManager#setAsyncStartup(boolean)}).
+ * An extension that cannot be created is logged and skipped, as with {@link SpringPluginManager#getExtensions(Class)}.
+ * <p>
+ * A {@code PluginExtensions} is injected in the beans of the host application context after
+ * {@link SpringPluginManager#init()} (the beans must depend on the plugin manager), or it's obtained with
+ * {@link SpringPluginManager#getPluginExtensions(Class)}.
+ */
+public class PluginExtensions<T> implements Iterable<T> {
+
+    private static final Logger log = LoggerFactory.getLogger(PluginExtensions.class);
+
+    private final SpringPluginManager pluginManager;
+    private final Class<T> type;
+
+    public PluginExtensions(SpringPluginManager pluginManager, Class<T> type) {
+        this.pluginManager = pluginManager;
+        this.type = type;
+    }
+
+    /**
+     * Creates the {@code PluginExtensions} of the extension point declared by the given injection point
+     * (the factory method of the {@code pluginExtensions} bean, see {@link PluginExtensionsRegistrar}).
+     */
+    static PluginExtensions<?> forInjectionPoint(InjectionPoint injectionPoint, SpringPluginManager pluginManager) {
+        ResolvableType resolvableType = (injectionPoint.getField() != null)
+            ? ResolvableType.forField(injectionPoint.getField())
+            : ResolvableType.forMethodParameter(injectionPoint.getMethodParameter());
+        Class<?> type = resolvableType.as(PluginExtensions.class).getGeneric(0).resolve();
+        if (type == null) {
+            throw new IllegalStateException("Cannot resolve the extension point of " + injectionPoint);
+        }
+
+        return new PluginExtensions<>(pluginManager, type);
+    }
+
+    public Class<T> getType() {
+        return type;
+    }
+
+    /**
+     * Returns the extensions of all started plugins and of the host application (classpath).
+     */
+    public Stream<T> stream() {
+        return stream(pluginManager.findExtensions(type));
+    }
+
+    /**
+     * Returns the extensions of the given plugin only (or of the host application for {@code null});
+     * the extensions of the other plugins are not created.
+     */
+    public Stream<T> stream(String pluginId) {
+        return stream(pluginManager.findExtensions(type, pluginId));
+    }
+
+    @Override
+    public Iterator<T> iterator() {
+        return stream().iterator();
+    }
+
+    /**
+     * Returns the extension classes, in ordinal order, without creating the extensions.
+     */
+    public List<Class<? extends T>> getExtensionClasses() {
+        return pluginManager.findExtensions(type).stream()
+            .map(extensionWrapper -> extensionWrapper.getDescriptor().extensionClass)
+            .<Class<? extends T>>map(extensionClass -> extensionClass.asSubclass(type))
+            .collect(Collectors.toList());
+    }
+
+    private Stream<T> stream(List<ExtensionWrapper<T>> extensionsWrapper) {
+        return extensionsWrapper.stream().flatMap(this::createExtension);
+    }
+
+    private Stream<T> createExtension(ExtensionWrapper<T> extensionWrapper) {
+        try {
+            return Stream.of(extensionWrapper.getExtension());
+        } catch (PluginRuntimeException e) {
+            log.error("Cannot retrieve extension", e);
+            return Stream.empty();
+        }
+    }
+
+}
@@ -0,0 +1,52 @@
+/*
+ * Copyright (C) 2012-present the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.pf4j.spring;
+
+import org.pf4j.PluginWrapper;
+import org.springframework.context.ApplicationEvent;
+
+import java.util.Set;
+
+/**
+ * Published in the host application context when the extensions of a plugin were registered as beans
+ * by the asynchronous startup (see {@link SpringPluginManager#setAsyncStartup(boolean)}).
+ * From now on, the extensions of the plugin are returned by the extension lookups of the plugin manager.
+ * The source of the event is the plugin manager.
+ */
+public class PluginExtensionsRegisteredEvent extends ApplicationEvent {
+
+    private final PluginWrapper plugin;
+    private final Set<String> beanNames;
+
+    public PluginExtensionsRegisteredEvent(SpringPluginManager pluginManager, PluginWrapper plugin, Set<String> beanNames) {
+        super(pluginManager);
+
+        this.plugin = plugin;
+        this.beanNames = beanNames;
+    }
+
+    public PluginWrapper getPlugin() {
+        return plugin;
+    }
+
+    /**
+     * Returns the names of the beans registered for the extensions of the plugin.
+     */
+    public Set<String> getBeanNames() {
+        return beanNames;
+    }
+
+}
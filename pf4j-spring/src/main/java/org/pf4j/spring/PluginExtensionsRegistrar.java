@@ -0,0 +1,73 @@
+/*
+ * Copyright (C) 2012-present the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.pf4j.spring;
+
+import org.springframework.beans.factory.config.BeanDefinition;
+import org.springframework.beans.factory.config.ConfigurableListableBeanFactory;
+import org.springframework.beans.factory.support.AbstractBeanDefinition;
+import org.springframework.beans.factory.support.BeanDefinitionRegistry;
+import org.springframework.beans.factory.support.BeanDefinitionRegistryPostProcessor;
+import org.springframework.beans.factory.support.RootBeanDefinition;
+
+/**
+ * Registers the {@code pluginExtensions} prototype bean (see {@link SpringPluginManager#PLUGIN_EXTENSIONS_BEAN_NAME}),
+ * so a {@link PluginExtensions} can be injected in the host application context, in any bean,
+ * unless a bean with the same name is defined.
+ * <p>
+ * The bean definition is registered before the instantiation of the singletons, with the {@link SpringPluginManager}
+ * resolved by type, so the beans that inject a {@link PluginExtensions} don't need to depend on the plugin manager.
+ * Declare it with a {@code static} bean method:
+ * <pre>
+ * &#64;Bean
+ * public static PluginExtensionsRegistrar pluginExtensionsRegistrar() {
+ *     return new PluginExtensionsRegistrar();
+ * }
+ * </pre>
+ * Without it, the bean definition is registered by {@link SpringPluginManager#init()}.
+ */
+public class PluginExtensionsRegistrar implements BeanDefinitionRegistryPostProcessor {
+
+    @Override
+    public void postProcessBeanDefinitionRegistry(BeanDefinitionRegistry registry) {
+        if (!registry.containsBeanDefinition(SpringPluginManager.PLUGIN_EXTENSIONS_BEAN_NAME)) {
+            registry.registerBeanDefinition(SpringPluginManager.PLUGIN_EXTENSIONS_BEAN_NAME, createBeanDefinition(null));
+        }
+    }
+
+    @Override
+    public void postProcessBeanFactory(ConfigurableListableBeanFactory beanFactory) {
+        // nothing to do
+    }
+
+    /**
+     * Creates the definition of the {@code pluginExtensions} bean, with the given plugin manager
+     * or, if it's {@code null}, with the plugin manager resolved by type.
+     */
+    static RootBeanDefinition createBeanDefinition(SpringPluginManager pluginManager) {
+        RootBeanDefinition beanDefinition = new RootBeanDefinition(PluginExtensions.class);
+        beanDefinition.setScope(BeanDefinition.SCOPE_PROTOTYPE);
+        beanDefinition.setFactoryMethodName("forInjectionPoint");
+        beanDefinition.setAutowireMode(AbstractBeanDefinition.AUTOWIRE_CONSTRUCTOR);
+        // the injection point is resolved on each injection
+        if (pluginManager != null) {
+            beanDefinition.getConstructorArgumentValues().addIndexedArgumentValue(1, pluginManager);
+        }
+        beanDefinition.setRole(BeanDefinition.ROLE_INFRASTRUCTURE);
+
+        return beanDefinition;
+    }
+
+}
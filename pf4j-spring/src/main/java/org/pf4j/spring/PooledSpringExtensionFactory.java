@@ -0,0 +1,497 @@
+/*
+ * Copyright (C) 2012-present the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.pf4j.spring;
+
+import org.pf4j.PluginManager;
+import org.pf4j.PluginStateEvent;
+import org.pf4j.PluginWrapper;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.time.Duration;
+import java.util.ArrayDeque;
+import java.util.Collections;
+import java.util.Deque;
+import java.util.IdentityHashMap;
+import java.util.Iterator;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * A {@link SpringExtensionFactory} that keeps a pool of instances per extension class, for extensions that are
+ * expensive to create (and autowire) but not thread safe.
+ * <p>
+ * An extension is borrowed with {@link #borrow(Class)} and given back with {@link #release(Object)}, or it's leased
+ * with {@link #lease(Class)} in a try-with-resources statement:
+ * <pre>{@code
+ *     try (PooledExtension<Parser> parser = extensionFactory.lease(Parser.class)) {
+ *         parser.get().parse(text);
+ *     }
+ * }</pre>
+ * A borrow reuses the most recently released idle instance or it creates a new instance
+ * (as {@link SpringExtensionFactory}). The pool of an extension class keeps at most {@code maxSize} idle instances
+ * (see {@link #setMaxSize(String, int)}), the other released instances are discarded.
+ * By default the number of borrowed instances is not bounded and a borrow never blocks. With {@code maxActive},
+ * a borrow waits (at most {@code maxWait}) while {@code maxActive} instances of the extension class are borrowed,
+ * then it fails with an {@link IllegalStateException}.
+ * Each borrowed instance must be released exactly once; releasing an instance that is not borrowed
+ * (for example twice) throws an {@link IllegalStateException}.
+ * The instances idle for longer than {@code maxIdleTime} are evicted on the next borrow of their class,
+ * or by {@link #evictIdle()} (to be called periodically if needed).
+ * <p>
+ * {@link #create(Class)} (used by PF4J, for example in {@code pluginManager.getExtensions()}) doesn't use the pool.
+ * The pools of a plugin are discarded when the plugin is stopped or unloaded.
+ */
+public class PooledSpringExtensionFactory extends SpringExtensionFactory {
+
+    private static final Logger log = LoggerFactory.getLogger(PooledSpringExtensionFactory.class);
+
+    public static final int DEFAULT_MAX_SIZE = 8;
+    public static final Duration DEFAULT_MAX_IDLE_TIME = Duration.ofMinutes(5);
+    /**
+     * The value of {@code maxActive} for no bound on the borrowed instances.
+     */
+    public static final int UNBOUNDED = 0;
+    public static final Duration DEFAULT_MAX_WAIT = Duration.ofSeconds(30);
+
+    private final int maxSize;
+    private final long maxIdleNanos;
+    private final int maxActive;
+    private final long maxWaitNanos;
+    private final Map<String, Integer> maxSizes = new ConcurrentHashMap<>();
+    private final ConcurrentMap<Class<?>, Pool> pools = new ConcurrentHashMap<>();
+
+    /**
+     * The borrowed instances (by identity) and their pool.
+     */
+    private final Map<Object, Pool> borrowedExtensions = Collections.synchronizedMap(new IdentityHashMap<>());
+
+    public PooledSpringExtensionFactory(PluginManager pluginManager) {
+        this(pluginManager, true, DEFAULT_MAX_SIZE, DEFAULT_MAX_IDLE_TIME);
+    }
+
+    public PooledSpringExtensionFactory(PluginManager pluginManager, boolean autowire, int maxSize, Duration maxIdleTime) {
+        this(pluginManager, autowire, maxSize, maxIdleTime, UNBOUNDED, DEFAULT_MAX_WAIT);
+    }
+
+    /**
+     * @param maxActive the max number of borrowed instances per extension class, or {@link #UNBOUNDED}
+     * @param maxWait the max time a borrow waits for an instance when {@code maxActive} instances are borrowed
+     */
+    public PooledSpringExtensionFactory(PluginManager pluginManager, boolean autowire, int maxSize, Duration maxIdleTime,
+                                        int maxActive, Duration maxWait) {
+        super(pluginManager, autowire);
+
+        if (maxSize < 0) {
+            throw new IllegalArgumentException("The max size of a pool cannot be negative");
+        }
+        if (maxActive < 0) {
+            throw new IllegalArgumentException("The max number of borrowed instances cannot be negative");
+        }
+        if (maxWait.isNegative()) {
+            throw new IllegalArgumentException("The max wait of a borrow cannot be negative");
+        }
+
+        this.maxSize = maxSize;
+        this.maxIdleNanos = maxIdleTime.toNanos();
+        this.maxActive = maxActive;
+        this.maxWaitNanos = maxWait.toNanos();
+    }
+
+    /**
+     * Sets the max number of idle instances kept for an extension class
+     * (the default value is the {@code maxSize} of the factory).
+     */
+    public void setMaxSize(String extensionClassName, int maxSize) {
+        if (maxSize < 0) {
+            throw new IllegalArgumentException("The max size of a pool cannot be negative");
+        }
+
+        maxSizes.put(extensionClassName, maxSize);
+    }
+
+    /**
+     * Returns the max number of idle instances kept for an extension class.
+     */
+    protected int getMaxSize(Class<?> extensionClass) {
+        return maxSizes.getOrDefault(extensionClass.getName(), maxSize);
+    }
+
+    /**
+     * Borrows an instance of the given extension class: an idle instance or, if there is none, a new instance.
+     * The instance must be given back with {@link #release(Object)}.
+     *
+     * @throws IllegalStateException if {@code maxActive} instances are still borrowed after {@code maxWait}
+     */
+    public <T> T borrow(Class<T> extensionClass) {
+        Pool pool = pools.get(extensionClass);
+        if (pool == null) {
+            pool = addPool(extensionClass);
+        }
+        int evicted = pool.evict(System.nanoTime() - maxIdleNanos);
+        if (evicted > 0) {
+            getMetrics().idleExtensionsEvicted(extensionClass, evicted);
+        }
+
+        Object extension = pool.acquire(extensionClass, maxActive, maxWaitNanos);
+        getMetrics().extensionBorrowed(extensionClass, extension != null);
+        if (extension == null) {
+            log.debug("Create pooled extension '{}'", extensionClass.getName());
+            try {
+                extension = create(extensionClass);
+            } catch (RuntimeException e) {
+                pool.cancel();
+                throw e;
+            }
+        } else {
+            touchPlugin(extensionClass);
+        }
+        borrowedExtensions.put(extension, pool);
+
+        return extensionClass.cast(extension);
+    }
+
+    /**
+     * Adds the pool of an extension class, if it doesn't exist.
+     * The pool is discarded if the plugin of the class is stopped meanwhile (the pool is added after the eviction
+     * of the plugin's pools and it would retain the plugin), so the borrow fails as after a discard.
+     */
+    private Pool addPool(Class<?> extensionClass) {
+        Pool pool = pools.computeIfAbsent(extensionClass, key -> new Pool());
+        if (isEvicted(extensionClass) && pools.remove(extensionClass, pool)) {
+            log.debug("Discarded the extension pool of '{}' of a stopped plugin", extensionClass.getName());
+            pool.discard();
+        }
+
+        return pool;
+    }
+
+    /**
+     * Gives back a borrowed extension. The extension is kept as idle instance if its pool is not full
+     * (and not discarded), else it's discarded.
+     *
+     * @throws IllegalStateException if the extension is not borrowed (for example it was already released)
+     */
+    public void release(Object extension) {
+        Pool pool = borrowedExtensions.remove(extension);
+        if (pool == null) {
+            throw new IllegalStateException("The extension '" + extension.getClass().getName() + "' is not borrowed");
+        }
+
+        if (!pool.release(extension, getMaxSize(extension.getClass()))) {
+            log.trace("Discard pooled extension '{}'", extension.getClass().getName());
+        }
+    }
+
+    /**
+     * Borrows an instance of the given extension class, given back when the returned handle is closed.
+     */
+    public <T> PooledExtension<T> lease(Class<T> extensionClass) {
+        return new PooledExtension<>(this, borrow(extensionClass));
+    }
+
+    /**
+     * Evicts from all pools the instances idle for longer than {@code maxIdleTime}.
+     *
+     * @return the number of evicted instances
+     */
+    public int evictIdle() {
+        long idleSince = System.nanoTime() - maxIdleNanos;
+        int total = 0;
+        for (Map.Entry<Class<?>, Pool> entry : pools.entrySet()) {
+            int evicted = entry.getValue().evict(idleSince);
+            if (evicted > 0) {
+                getMetrics().idleExtensionsEvicted(entry.getKey(), evicted);
+                total += evicted;
+            }
+        }
+        log.debug("Evicted {} idle extensions", total);
+
+        return total;
+    }
+
+    /**
+     * Returns the statistics of the pool of an extension class (all zero if the class has no pool).
+     */
+    public PoolStats getPoolStats(Class<?> extensionClass) {
+        Pool pool = pools.get(extensionClass);
+
+        return (pool != null) ? pool.stats() : new PoolStats(0, 0, 0, 0, 0, 0, 0);
+    }
+
+    /**
+     * Discards the pools of a plugin when the plugin is stopped or unloaded.
+     */
+    @Override
+    public void pluginStateChanged(PluginStateEvent event) {
+        super.pluginStateChanged(event);
+
+        if (event.getPluginState().isStopped() || event.getPluginState().isUnloaded()) {
+            evictExtensions(event.getPlugin());
+        }
+    }
+
+    /**
+     * Discards the pools of a plugin.
+     */
+    @Override
+    public void evictExtensions(PluginWrapper plugin) {
+        super.evictExtensions(plugin);
+
+        boolean discarded = false;
+        for (Iterator<Map.Entry<Class<?>, Pool>> it = pools.entrySet().iterator(); it.hasNext(); ) {
+            Map.Entry<Class<?>, Pool> entry = it.next();
+            if (entry.getKey().getClassLoader() == plugin.getPluginClassLoader()) {
+                it.remove();
+                entry.getValue().discard();
+                discarded = true;
+            }
+        }
+        if (discarded) {
+            log.debug("Discarded the extension pools of plugin '{}'", plugin.getPluginId());
+        }
+    }
+
+    /**
+     * A borrowed extension, given back to the factory when it's closed.
+     * A handle is meant to be used by one thread (as the extension).
+     */
+    public static class PooledExtension<T> implements AutoCloseable {
+
+        private final PooledSpringExtensionFactory extensionFactory;
+        private final T extension;
+        private boolean released;
+
+        PooledExtension(PooledSpringExtensionFactory extensionFactory, T extension) {
+            this.extensionFactory = extensionFactory;
+            this.extension = extension;
+        }
+
+        public T get() {
+            if (released) {
+                throw new IllegalStateException("The extension was released");
+            }
+
+            return extension;
+        }
+
+        @Override
+        public void close() {
+            if (!released) {
+                released = true;
+                extensionFactory.release(extension);
+            }
+        }
+
+    }
+
+    /**
+     * The statistics of the pool of an extension class.
+     */
+    public static class PoolStats {
+
+        private final long borrowed;
+        private final long created;
+        private final long released;
+        private final long discarded;
+        private final long evicted;
+        private final int idle;
+        private final int active;
+
+        PoolStats(long borrowed, long created, long released, long discarded, long evicted, int idle, int active) {
+            this.borrowed = borrowed;
+            this.created = created;
+            this.released = released;
+            this.discarded = discarded;
+            this.evicted = evicted;
+            this.idle = idle;
+            this.active = active;
+        }
+
+        /**
+         * Returns the number of borrows.
+         */
+        public long getBorrowed() {
+            return borrowed;
+        }
+
+        /**
+         * Returns the number of borrows that created a new instance (no idle instance was available).
+         */
+        public long getCreated() {
+            return created;
+        }
+
+        /**
+         * Returns the number of instances given back and kept as idle instances.
+         */
+        public long getReleased() {
+            return released;
+        }
+
+        /**
+         * Returns the number of instances given back and discarded because the pool was full.
+         */
+        public long getDiscarded() {
+            return discarded;
+        }
+
+        /**
+         * Returns the number of idle instances evicted.
+         */
+        public long getEvicted() {
+            return evicted;
+        }
+
+        /**
+         * Returns the current number of idle instances.
+         */
+        public int getIdle() {
+            return idle;
+        }
+
+        /**
+         * Returns the current number of borrowed instances (not yet released).
+         */
+        public int getActive() {
+            return active;
+        }
+
+        @Override
+        public String toString() {
+            return "PoolStats [borrowed=" + borrowed + ", created=" + created + ", released=" + released
+                + ", discarded=" + discarded + ", evicted=" + evicted + ", idle=" + idle + ", active=" + active + "]";
+        }
+
+    }
+
+    /**
+     * The idle instances of an extension class, most recently released first, and the number of borrowed instances.
+     * The pool is guarded by its own lock, held only to move an instance (never to create one).
+     */
+    private static class Pool {
+
+        private final Deque<IdleExtension> idleExtensions = new ArrayDeque<>();
+        private int active;
+        private boolean closed;
+        private long borrowed;
+        private long created;
+        private long released;
+        private long discarded;
+        private long evicted;
+
+        /**
+         * Takes a borrow slot, waiting for one if {@code maxActive} instances are borrowed, and returns
+         * an idle instance, or {@code null} if a new instance must be created (or {@link #cancel()}ed).
+         */
+        synchronized Object acquire(Class<?> extensionClass, int maxActive, long maxWaitNanos) {
+            if (maxActive != UNBOUNDED && active >= maxActive) {
+                long deadline = System.nanoTime() + maxWaitNanos;
+                try {
+                    while (active >= maxActive && !closed) {
+                        long remainingNanos = deadline - System.nanoTime();
+                        if (remainingNanos <= 0) {
+                            throw new IllegalStateException("The " + maxActive + " instances of extension '"
+                                + extensionClass.getName() + "' are borrowed");
+                        }
+                        TimeUnit.NANOSECONDS.timedWait(this, remainingNanos);
+                    }
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                    throw new IllegalStateException("Interrupted while waiting for an instance of extension '"
+                        + extensionClass.getName() + "'", e);
+                }
+            }
+
+            if (closed) {
+                throw new IllegalStateException("The pool of extension '" + extensionClass.getName() + "' is discarded");
+            }
+
+            active++;
+            borrowed++;
+            IdleExtension idleExtension = idleExtensions.pollFirst();
+            if (idleExtension == null) {
+                created++;
+                return null;
+            }
+
+            return idleExtension.extension;
+        }
+
+        /**
+         * Gives back the slot taken by {@link #acquire(Class, int, long)} when the new instance cannot be created.
+         */
+        synchronized void cancel() {
+            active--;
+            notify();
+        }
+
+        synchronized boolean release(Object extension, int maxSize) {
+            active--;
+            notify();
+            if (closed || idleExtensions.size() >= maxSize) {
+                discarded++;
+                return false;
+            }
+
+            released++;
+            idleExtensions.offerFirst(new IdleExtension(extension, System.nanoTime()));
+
+            return true;
+        }
+
+        synchronized int evict(long idleSince) {
+            int count = 0;
+            // the least recently released instances are at the end
+            while (!idleExtensions.isEmpty() && idleExtensions.peekLast().releaseTime - idleSince < 0) {
+                idleExtensions.pollLast();
+                count++;
+            }
+            evicted += count;
+
+            return count;
+        }
+
+        /**
+         * Discards the idle instances, and the borrowed instances when they are released.
+         */
+        synchronized void discard() {
+            closed = true;
+            idleExtensions.clear();
+            notifyAll();
+        }
+
+        synchronized PoolStats stats() {
+            return new PoolStats(borrowed, created, released, discarded, evicted, idleExtensions.size(), active);
+        }
+
+    }
+
+    private static class IdleExtension {
+
+        private final Object extension;
+        private final long releaseTime;
+
+        IdleExtension(Object extension, long releaseTime) {
+            this.extension = extension;
+            this.releaseTime = releaseTime;
+        }
+
+    }
+
+}
@@ -0,0 +1,94 @@
+/*
+ * Copyright (C) 2012-present the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.pf4j.spring;
+
+import org.pf4j.PluginManager;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.config.AutowireCapableBeanFactory;
+import org.springframework.beans.factory.config.BeanDefinition;
+import org.springframework.beans.factory.support.BeanDefinitionRegistry;
+import org.springframework.beans.factory.support.RootBeanDefinition;
+import org.springframework.context.ApplicationContext;
+
+/**
+ * A {@link SpringExtensionFactory} optimized for extensions created on each request (prototypes).
+ * <p>
+ * For each extension class that belongs to a {@link SpringPlugin}, a prototype bean definition is registered
+ * (once) in the application context of the plugin and each extension instance is obtained with
+ * {@code getBean()}. This way Spring resolves the constructor and the injection points of the extension
+ * class only once and reuses them for the next instances.
+ * <p>
+ * Compared with {@link SpringExtensionFactory}, the extension instance goes through the full bean lifecycle
+ * of a prototype bean (aware interfaces, bean post processors, {@code @PostConstruct}).
+ * The registered bean definitions are not autowire candidates, and their name is the extension class name
+ * followed by {@link #BEAN_NAME_SUFFIX}.
+ * The extensions that don't belong to a spring plugin are created as in {@link SpringExtensionFactory}.
+ */
+public class PrototypeSpringExtensionFactory extends SpringExtensionFactory {
+
+    private static final Logger log = LoggerFactory.getLogger(PrototypeSpringExtensionFactory.class);
+
+    public static final String BEAN_NAME_SUFFIX = "#extension";
+
+    public PrototypeSpringExtensionFactory(PluginManager pluginManager) {
+        super(pluginManager);
+    }
+
+    public PrototypeSpringExtensionFactory(PluginManager pluginManager, boolean autowire) {
+        super(pluginManager, autowire);
+    }
+
+    @Override
+    protected <T> T createWithSpring(Class<T> extensionClass, ApplicationContext applicationContext) {
+        AutowireCapableBeanFactory beanFactory = applicationContext.getAutowireCapableBeanFactory();
+        if (!(beanFactory instanceof BeanDefinitionRegistry) || !isPluginApplicationContext(applicationContext)) {
+            return super.createWithSpring(extensionClass, applicationContext);
+        }
+
+        BeanDefinitionRegistry registry = (BeanDefinitionRegistry) beanFactory;
+        String beanName = extensionClass.getName() + BEAN_NAME_SUFFIX;
+        if (!registry.containsBeanDefinition(beanName)) {
+            synchronized (registry) {
+                if (!registry.containsBeanDefinition(beanName)) {
+                    log.debug("Register prototype bean definition '{}'", beanName);
+                    registry.registerBeanDefinition(beanName, createBeanDefinition(extensionClass));
+                }
+            }
+        }
+
+        return applicationContext.getBean(beanName, extensionClass);
+    }
+
+    /**
+     * Creates the prototype bean definition of an extension class.
+     * The extension is autowired by constructor and then by annotations (fields, setters).
+     */
+    protected RootBeanDefinition createBeanDefinition(Class<?> extensionClass) {
+        RootBeanDefinition beanDefinition = new RootBeanDefinition(extensionClass);
+        beanDefinition.setScope(BeanDefinition.SCOPE_PROTOTYPE);
+        beanDefinition.setAutowireMode(AutowireCapableBeanFactory.AUTOWIRE_CONSTRUCTOR);
+        beanDefinition.setAutowireCandidate(false);
+
+        return beanDefinition;
+    }
+
+    private boolean isPluginApplicationContext(ApplicationContext applicationContext) {
+        return !(pluginManager instanceof SpringPluginManager)
+            || applicationContext != ((SpringPluginManager) pluginManager).getApplicationContext();
+    }
+
+}
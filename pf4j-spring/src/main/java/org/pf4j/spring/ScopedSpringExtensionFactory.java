@@ -0,0 +1,255 @@
+/*
+ * Copyright (C) 2012-present the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.pf4j.spring;
+
+import org.pf4j.PluginManager;
+import org.pf4j.PluginWrapper;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.config.AutowireCapableBeanFactory;
+import org.springframework.beans.factory.config.ConfigurableBeanFactory;
+import org.springframework.beans.factory.config.Scope;
+import org.springframework.context.ApplicationContext;
+import org.springframework.core.annotation.AnnotatedElementUtils;
+
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.Set;
+import java.util.WeakHashMap;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+
+/**
+ * A {@link SingletonSpringExtensionFactory} that honours the Spring {@code @Scope} annotation
+ * (also as meta-annotation, for example {@code @RequestScope}) of the extension classes:
+ * <ul>
+ *     <li>{@code singleton}: a single instance is created (see {@link SingletonSpringExtensionFactory})</li>
+ *     <li>{@code prototype}: a new instance is created on each request (see {@link SpringExtensionFactory})</li>
+ *     <li>a scope registered in the application context of the extension (the context of its plugin)
+ *     or in one of its ancestors (for example {@code request} and {@code session} in a web application):
+ *     the instance is obtained from that scope, under the name of the extension class</li>
+ *     <li>{@link #SCOPE_THREAD}, if no such scope is registered: an instance is created and reused per thread</li>
+ * </ul>
+ * The extension classes without {@code @Scope} are singletons, or prototypes if they are not
+ * in the extension class names given to the factory.
+ * <p>
+ * The scope of each extension class is read only once. The thread scoped instances of a plugin are released
+ * when the plugin is stopped or unloaded.
+ */
+public class ScopedSpringExtensionFactory extends SingletonSpringExtensionFactory {
+
+    private static final Logger log = LoggerFactory.getLogger(ScopedSpringExtensionFactory.class);
+
+    public static final String SCOPE_THREAD = "thread";
+
+    private static final ClassValue<String> scopeNames = new ClassValue<String>() {
+
+        @Override
+        protected String computeValue(Class<?> type) {
+            org.springframework.context.annotation.Scope scope = AnnotatedElementUtils.findMergedAnnotation(type,
+                org.springframework.context.annotation.Scope.class);
+
+            return (scope != null) ? scope.scopeName() : "";
+        }
+
+    };
+
+    /**
+     * The thread scoped instances partitioned by the class loader of the extension class (one partition per plugin).
+     */
+    private final ConcurrentMap<ClassLoader, ThreadPartition> threadPartitions = new ConcurrentHashMap<>();
+
+    public ScopedSpringExtensionFactory(PluginManager pluginManager) {
+        super(pluginManager);
+    }
+
+    public ScopedSpringExtensionFactory(PluginManager pluginManager, String... extensionClassNames) {
+        super(pluginManager, extensionClassNames);
+    }
+
+    public ScopedSpringExtensionFactory(PluginManager pluginManager, boolean autowire, String... extensionClassNames) {
+        super(pluginManager, autowire, extensionClassNames);
+    }
+
+    @Override
+    public <T> T create(Class<T> extensionClass) {
+        String scopeName = getScopeName(extensionClass);
+        if (scopeName.isEmpty() || ConfigurableBeanFactory.SCOPE_SINGLETON.equals(scopeName)
+            || ConfigurableBeanFactory.SCOPE_PROTOTYPE.equals(scopeName)) {
+            // see isSingleton
+            return super.create(extensionClass);
+        }
+
+        Scope scope = getRegisteredScope(extensionClass, scopeName);
+        if (scope != null) {
+            return extensionClass.cast(scope.get(extensionClass.getName(), () -> super.create(extensionClass)));
+        }
+
+        if (SCOPE_THREAD.equals(scopeName)) {
+            return getThreadInstance(extensionClass);
+        }
+
+        throw new IllegalStateException("No scope registered for scope name '" + scopeName + "' of extension '"
+            + extensionClass.getName() + "'");
+    }
+
+    @Override
+    protected boolean isSingleton(Class<?> extensionClass) {
+        String scopeName = getScopeName(extensionClass);
+
+        return scopeName.isEmpty() ? super.isSingleton(extensionClass) : ConfigurableBeanFactory.SCOPE_SINGLETON.equals(scopeName);
+    }
+
+    /**
+     * Returns the scope name of an extension class (from its {@code @Scope} annotation),
+     * or an empty string if the class is not annotated.
+     */
+    protected String getScopeName(Class<?> extensionClass) {
+        return scopeNames.get(extensionClass);
+    }
+
+    /**
+     * Returns the scope registered with the given name in the application context of the extension
+     * or in its ancestors, or {@code null} if there is no such scope.
+     */
+    protected Scope getRegisteredScope(Class<?> extensionClass, String scopeName) {
+        ApplicationContext applicationContext = getApplicationContextBy(extensionClass).orElse(null);
+        while (applicationContext != null) {
+            AutowireCapableBeanFactory beanFactory = applicationContext.getAutowireCapableBeanFactory();
+            if (beanFactory instanceof ConfigurableBeanFactory) {
+                Scope scope = ((ConfigurableBeanFactory) beanFactory).getRegisteredScope(scopeName);
+                if (scope != null) {
+                    return scope;
+                }
+            }
+            applicationContext = applicationContext.getParent();
+        }
+
+        return null;
+    }
+
+    /**
+     * Evicts the singletons and discards the thread scoped instances of a plugin (in all threads).
+     */
+    @Override
+    public void evictExtensions(PluginWrapper plugin) {
+        super.evictExtensions(plugin);
+
+        ThreadPartition partition = threadPartitions.remove(plugin.getPluginClassLoader());
+        if (partition != null) {
+            partition.release();
+            log.debug("Released the thread scoped extensions of plugin '{}'", plugin.getPluginId());
+        }
+    }
+
+    private <T> T getThreadInstance(Class<T> extensionClass) {
+        ThreadPartition partition = threadPartitions.get(extensionClass.getClassLoader());
+        if (partition == null) {
+            partition = addThreadPartition(extensionClass);
+        }
+        Map<String, Object> instances = partition.getInstances();
+        Object extension = instances.get(extensionClass.getName());
+        if (extension == null) {
+            log.debug("Create thread scoped extension '{}' for thread '{}'", extensionClass.getName(), Thread.currentThread().getName());
+            // see isSingleton
+            extension = super.create(extensionClass);
+            instances.put(extensionClass.getName(), extension);
+        } else {
+            touchPlugin(extensionClass);
+        }
+
+        return extensionClass.cast(extension);
+    }
+
+    private ThreadPartition addThreadPartition(Class<?> extensionClass) {
+        ClassLoader classLoader = extensionClass.getClassLoader();
+        ThreadPartition partition = threadPartitions.computeIfAbsent(classLoader, key -> new ThreadPartition());
+        // the partition can be added after the eviction of a plugin stopped meanwhile, it would retain the plugin
+        if (isEvicted(extensionClass) && threadPartitions.remove(classLoader, partition)) {
+            partition.release();
+        }
+
+        return partition;
+    }
+
+    /**
+     * The thread scoped instances of a plugin.
+     * A thread finds its instances in a thread local, without lock. The instances of all threads are also registered
+     * (weakly, on the first lookup of each thread), so that they are released when the plugin is evicted;
+     * the instances of a terminated thread are released with its thread locals.
+     */
+    private static class ThreadPartition {
+
+        private final ThreadLocal<ThreadInstances> threadInstances = new ThreadLocal<>();
+        /**
+         * The instances of all threads, guarded by itself.
+         */
+        private final Set<ThreadInstances> allThreadInstances = Collections.newSetFromMap(new WeakHashMap<>());
+        private boolean released;
+
+        /**
+         * Returns the instances (by extension class name) of the current thread.
+         * If the partition is released, the returned instances are not kept.
+         */
+        Map<String, Object> getInstances() {
+            ThreadInstances instances = threadInstances.get();
+            Map<String, Object> result = (instances != null) ? instances.instances : null;
+            if (result == null) {
+                // slow path, first lookup of the thread
+                result = new HashMap<>();
+                synchronized (allThreadInstances) {
+                    if (!released) {
+                        instances = new ThreadInstances(result);
+                        allThreadInstances.add(instances);
+                        threadInstances.set(instances);
+                    }
+                }
+            }
+
+            return result;
+        }
+
+        /**
+         * Releases the instances of all threads.
+         * The thread locals of the other threads can't be removed, they keep only an empty holder.
+         */
+        void release() {
+            synchronized (allThreadInstances) {
+                released = true;
+                for (ThreadInstances instances : allThreadInstances) {
+                    instances.instances = null;
+                }
+                allThreadInstances.clear();
+            }
+        }
+
+    }
+
+    /**
+     * The instances of a thread, read and written only by that thread (until they are released).
+     */
+    private static class ThreadInstances {
+
+        private volatile Map<String, Object> instances;
+
+        ThreadInstances(Map<String, Object> instances) {
+            this.instances = instances;
+        }
+
+    }
+
+}
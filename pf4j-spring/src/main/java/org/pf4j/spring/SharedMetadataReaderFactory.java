@@ -0,0 +1,108 @@
+/*
+ * Copyright (C) 2012-present the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.pf4j.spring;
+
+import org.springframework.core.io.Resource;
+import org.springframework.core.io.UrlResource;
+import org.springframework.core.type.classreading.MetadataReader;
+import org.springframework.core.type.classreading.SimpleMetadataReaderFactory;
+import org.springframework.util.ClassUtils;
+
+import java.io.IOException;
+import java.net.URL;
+import java.util.concurrent.ConcurrentMap;
+
+/**
+ * A {@link org.springframework.core.type.classreading.MetadataReaderFactory} that resolves the class names
+ * with its own class loader (for example the class loader of a plugin), but shares the metadata readers
+ * of the application classes with other factories.
+ * <p>
+ * A metadata reader retains the class loader that created it (the annotation metadata resolves
+ * the class values with it), so:
+ * <ul>
+ *     <li>the metadata of an application class (a class file resolved to the same URL by the application class loader)
+ *     is read with the application class loader and cached in a map shared by all the plugins</li>
+ *     <li>the metadata of the other classes (the classes of the plugin and of its dependencies) is read
+ *     with the class loader of the factory and cached in a map of this class loader, that is dropped
+ *     with the plugin (see {@link SpringPluginManager#createMetadataReaderFactory(ClassLoader)})</li>
+ * </ul>
+ */
+public class SharedMetadataReaderFactory extends SimpleMetadataReaderFactory {
+
+    private final SimpleMetadataReaderFactory applicationMetadataReaderFactory;
+    private final ConcurrentMap<String, MetadataReader> applicationMetadataReaders;
+    private final ConcurrentMap<String, MetadataReader> metadataReaders;
+
+    /**
+     * @param classLoader the class loader of the plugin
+     * @param applicationClassLoader the class loader of the application (the parent of the plugin class loader)
+     * @param applicationMetadataReaders the metadata readers of the application classes, by class file URL
+     * @param metadataReaders the metadata readers of the other classes, by class file URL
+     */
+    public SharedMetadataReaderFactory(ClassLoader classLoader, ClassLoader applicationClassLoader,
+                                       ConcurrentMap<String, MetadataReader> applicationMetadataReaders,
+                                       ConcurrentMap<String, MetadataReader> metadataReaders) {
+        super(classLoader);
+
+        applicationMetadataReaderFactory = new SimpleMetadataReaderFactory(applicationClassLoader);
+        this.applicationMetadataReaders = applicationMetadataReaders;
+        this.metadataReaders = metadataReaders;
+    }
+
+    @Override
+    public MetadataReader getMetadataReader(Resource resource) throws IOException {
+        URL url;
+        try {
+            url = resource.getURL();
+        } catch (IOException e) {
+            // not resolvable as URL (for example a byte array resource)
+            return super.getMetadataReader(resource);
+        }
+
+        String key = url.toString();
+        MetadataReader metadataReader = applicationMetadataReaders.get(key);
+        if (metadataReader == null) {
+            metadataReader = metadataReaders.get(key);
+        }
+        if (metadataReader != null) {
+            return metadataReader;
+        }
+
+        metadataReader = super.getMetadataReader(new UrlResource(url));
+        if (isApplicationClass(metadataReader, key)) {
+            // read again, so the shared reader retains only the application class loader
+            metadataReader = applicationMetadataReaderFactory.getMetadataReader(new UrlResource(url));
+            MetadataReader existing = applicationMetadataReaders.putIfAbsent(key, metadataReader);
+            return (existing != null) ? existing : metadataReader;
+        }
+
+        MetadataReader existing = metadataReaders.putIfAbsent(key, metadataReader);
+        return (existing != null) ? existing : metadataReader;
+    }
+
+    private boolean isApplicationClass(MetadataReader metadataReader, String url) {
+        ClassLoader applicationClassLoader = applicationMetadataReaderFactory.getResourceLoader().getClassLoader();
+        if (applicationClassLoader == null) {
+            return false;
+        }
+
+        String className = metadataReader.getClassMetadata().getClassName();
+        URL applicationUrl = applicationClassLoader.getResource(ClassUtils.convertClassNameToResourcePath(className) + ClassUtils.CLASS_FILE_SUFFIX);
+
+        return (applicationUrl != null) && url.equals(applicationUrl.toString());
+    }
+
+}
@@ -16,23 +16,41 @@
 package org.pf4j.spring;
 
 import org.pf4j.PluginManager;
+import org.pf4j.PluginStateEvent;
+import org.pf4j.PluginWrapper;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
 
 import java.util.Arrays;
-import java.util.HashMap;
-import java.util.List;
-import java.util.Map;
+import java.util.HashSet;
+import java.util.Objects;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.function.Supplier;
 
 /**
  * A {@link SpringExtensionFactory} that always returns a specific instance.
  * Optional you can specify the extension classes for which you want singletons.
+ * <p>
+ * This factory is thread safe. Each singleton is created exactly once and the lookup of an already
+ * created singleton doesn't acquire any lock.
+ * <p>
+ * The singletons are cached per plugin. When a plugin is stopped or unloaded its singletons are evicted,
+ * so that the cache doesn't retain the plugin's class loader and application context.
  *
  * @author Decebal Suiu
  */
 public class SingletonSpringExtensionFactory extends SpringExtensionFactory {
 
-    private final List<String> extensionClassNames;
+    private static final Logger log = LoggerFactory.getLogger(SingletonSpringExtensionFactory.class);
 
-    private Map<String, Object> cache;
+    private final Set<String> extensionClassNames;
+
+    /**
+     * The singletons partitioned by the class loader of the extension class (one partition per plugin).
+     */
+    private final ConcurrentMap<ClassLoader, Partition> cache;
 
     public SingletonSpringExtensionFactory(PluginManager pluginManager) {
         this(pluginManager, true);
@@ -45,25 +63,128 @@ public class SingletonSpringExtensionFactory extends SpringExtensionFactory {
     public SingletonSpringExtensionFactory(PluginManager pluginManager, boolean autowire, String... extensionClassNames) {
         super(pluginManager, autowire);
 
-        this.extensionClassNames = Arrays.asList(extensionClassNames);
+        this.extensionClassNames = new HashSet<>(Arrays.asList(extensionClassNames));
 
-        cache = new HashMap<>(); // simple cache implementation
+        cache = new ConcurrentHashMap<>();
     }
 
     @Override
     @SuppressWarnings("unchecked")
     public <T> T create(Class<T> extensionClass) {
+        if (!isSingleton(extensionClass)) {
+            return super.create(extensionClass);
+        }
+
         String extensionClassName = extensionClass.getName();
-        if (cache.containsKey(extensionClassName)) {
-            return (T) cache.get(extensionClassName);
+        Partition partition = cache.get(extensionClass.getClassLoader());
+        Singleton singleton = (partition != null) ? partition.singletons.get(extensionClassName) : null;
+        Object extension = (singleton != null) ? singleton.instance : null;
+        if (extension != null) {
+            getMetrics().singletonCacheHit(extensionClass);
+            // the context of the plugin is in use, even if it's not requested
+            touchPlugin(extensionClass);
+        } else {
+            // slow path, first request
+            getMetrics().singletonCacheMiss(extensionClass);
+            ClassLoader classLoader = extensionClass.getClassLoader();
+            partition = cache.computeIfAbsent(classLoader, key -> new Partition(pluginIdOf(extensionClass)));
+            extension = partition.singletons.computeIfAbsent(extensionClassName, key -> new Singleton())
+                .getOrCreate(() -> super.create(extensionClass));
+            // the partition can be added after the eviction of a plugin stopped meanwhile, it would retain the plugin
+            if (isEvicted(extensionClass) && cache.remove(classLoader, partition)) {
+                log.debug("Evicted the singleton extensions of stopped plugin '{}'", partition.pluginId);
+            }
+        }
+
+        return (T) extension;
+    }
+
+    /**
+     * Returns {@code true} if a single instance of the given extension class should be created.
+     */
+    protected boolean isSingleton(Class<?> extensionClass) {
+        return extensionClassNames.isEmpty() || extensionClassNames.contains(extensionClass.getName());
+    }
+
+    /**
+     * Returns the number of cached singletons of a plugin.
+     *
+     * @param pluginId the plugin id, or {@code null} for the extensions that don't belong to a plugin
+     */
+    public int getCacheSize(String pluginId) {
+        return cache.values().stream()
+            .filter(partition -> Objects.equals(pluginId, partition.pluginId))
+            .mapToInt(partition -> partition.singletons.size())
+            .sum();
+    }
+
+    /**
+     * Evicts the singletons of a plugin when the plugin is stopped or unloaded.
+     */
+    @Override
+    public void pluginStateChanged(PluginStateEvent event) {
+        super.pluginStateChanged(event);
+
+        if (event.getPluginState().isStopped() || event.getPluginState().isUnloaded()) {
+            evictExtensions(event.getPlugin());
         }
+    }
+
+    /**
+     * Evicts the singletons of a plugin.
+     */
+    @Override
+    public void evictExtensions(PluginWrapper plugin) {
+        super.evictExtensions(plugin);
+
+        Partition partition = cache.remove(plugin.getPluginClassLoader());
+        if (partition != null) {
+            log.debug("Evicted {} singleton extensions of plugin '{}'", partition.singletons.size(), plugin.getPluginId());
+        }
+    }
+
+    private String pluginIdOf(Class<?> extensionClass) {
+        PluginWrapper plugin = pluginManager.whichPlugin(extensionClass);
+
+        return (plugin != null) ? plugin.getPluginId() : null;
+    }
+
+    /**
+     * The singletons of a plugin.
+     */
+    private static class Partition {
+
+        private final String pluginId;
+        private final ConcurrentMap<String, Singleton> singletons = new ConcurrentHashMap<>();
+
+        Partition(String pluginId) {
+            this.pluginId = pluginId;
+        }
+
+    }
+
+    /**
+     * Holds the instance of a singleton extension.
+     * The instance is created (under the lock of this holder, not a global lock) only on first request.
+     */
+    private static class Singleton {
+
+        private volatile Object instance;
+
+        Object getOrCreate(Supplier<?> factory) {
+            Object result = instance;
+            if (result == null) {
+                synchronized (this) {
+                    result = instance;
+                    if (result == null) {
+                        instance = result = factory.get();
+                    }
+                }
+            }
 
-        T extension = super.create(extensionClass);
-        if (extensionClassNames.isEmpty() || extensionClassNames.contains(extensionClassName)) {
-            cache.put(extensionClassName, extension);
+            return result;
         }
 
-        return extension;
     }
 
 }
@@ -18,7 +18,10 @@ package org.pf4j.spring;
 import org.pf4j.Extension;
 import org.pf4j.ExtensionFactory;
 import org.pf4j.Plugin;
+import org.pf4j.PluginClassLoader;
 import org.pf4j.PluginManager;
+import org.pf4j.PluginStateEvent;
+import org.pf4j.PluginStateListener;
 import org.pf4j.PluginWrapper;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
@@ -26,11 +29,11 @@ import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.beans.factory.config.AutowireCapableBeanFactory;
 import org.springframework.context.ApplicationContext;
 
-import java.lang.reflect.Constructor;
 import java.lang.reflect.InvocationTargetException;
-import java.util.Comparator;
 import java.util.Optional;
-import java.util.stream.Stream;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.function.Supplier;
 
 import static java.util.Objects.nonNull;
 
@@ -40,10 +43,16 @@ import static java.util.Objects.nonNull;
  * Uses Springs {@link AutowireCapableBeanFactory} to instantiate a given extension class. All kinds of
  * {@link Autowired} are supported (see example below). If no {@link ApplicationContext} is available (this is the case
  * if either the related plugin is not a {@link SpringPlugin} or the given plugin manager is not a
- * {@link SpringPluginManager}), standard Java reflection will be used to instantiate an extension.
+ * {@link SpringPluginManager}), the public constructor with the shortest parameter list is called to instantiate an extension.
  * <p><p>
  * Creates a new extension instance every time a request is done.
  * <p><p>
+ * The application context used for an extension class is resolved once per class loader (so once per plugin)
+ * and the resolution is discarded when the state of the plugin changes.
+ * <p><p>
+ * If the extension is indexed at build time by {@code pf4j-spring-processor} (see {@link ExtensionIndex}) and it has
+ * no injection points, it's created without Spring, so its application context is neither resolved nor created.
+ * <p><p>
  * Example of supported autowire modes:
  * <pre>{@code
  *     @Extension
@@ -69,7 +78,7 @@ import static java.util.Objects.nonNull;
  * @author Decebal Suiu
  * @author m-schroeer
  */
-public class SpringExtensionFactory implements ExtensionFactory {
+public class SpringExtensionFactory implements ExtensionFactory, PluginStateListener {
 
     private static final Logger log = LoggerFactory.getLogger(SpringExtensionFactory.class);
     public static final boolean AUTOWIRE_BY_DEFAULT = true;
@@ -85,6 +94,14 @@ public class SpringExtensionFactory implements ExtensionFactory {
      * Indicates if springs autowiring possibilities should be used.
      */
     protected final boolean autowire;
+    /**
+     * The resolved application context suppliers, by the class loader of the extension class.
+     */
+    private final ConcurrentMap<ClassLoader, Supplier<ApplicationContext>> applicationContextSuppliers = new ConcurrentHashMap<>();
+    /**
+     * The resolved {@link SpringPlugin}s (empty if the plugin is not a spring plugin), by the class loader of the extension class.
+     */
+    private final ConcurrentMap<ClassLoader, Optional<SpringPlugin>> springPlugins = new ConcurrentHashMap<>();
 
     public SpringExtensionFactory(final PluginManager pluginManager) {
         this(pluginManager, AUTOWIRE_BY_DEFAULT);
@@ -97,6 +114,8 @@ public class SpringExtensionFactory implements ExtensionFactory {
             log.warn("Autowiring is disabled although the only reason for existence of this special factory is" +
                      " supporting spring and its application context.");
         }
+
+        pluginManager.addPluginStateListener(this);
     }
 
     /**
@@ -110,15 +129,113 @@ public class SpringExtensionFactory implements ExtensionFactory {
      */
     @Override
     public <T> T create(final Class<T> extensionClass) {
+        final SpringPluginMetrics metrics = getMetrics();
+        final long start = (metrics != SpringPluginMetrics.NONE) ? System.nanoTime() : 0;
+        // the metric is tagged with the path taken, the application context is resolved once
+        final ApplicationContext applicationContext = applicationContextToCreate(extensionClass);
+        final T extension = (applicationContext != null)
+            ? createWithSpring(extensionClass, applicationContext)
+            : createWithoutSpring(extensionClass);
+        if (metrics != SpringPluginMetrics.NONE) {
+            metrics.extensionCreated(extensionClass, applicationContext != null, System.nanoTime() - start);
+        }
+
+        return extension;
+    }
+
+    /**
+     * Returns the application context used to create the given {@code extensionClass},
+     * or {@code null} if the extension is created without Spring.
+     */
+    private ApplicationContext applicationContextToCreate(final Class<?> extensionClass) {
         if (!this.autowire) {
-            log.warn("Create instance of '" + nameOf(extensionClass) + "' without using springs possibilities as" +
-                     " autowiring is disabled.");
-            return createWithoutSpring(extensionClass);
+            log.warn("Create instance of '{}' without using springs possibilities as autowiring is disabled.", nameOf(extensionClass));
+            return null;
+        }
+
+        if (!requiresSpring(extensionClass)) {
+            log.debug("Create instance of '{}' without spring as it has no injection points (see extension index).", nameOf(extensionClass));
+            return null;
         }
 
-        return getApplicationContextBy(extensionClass)
-            .map(applicationContext -> createWithSpring(extensionClass, applicationContext))
-            .orElseGet(() -> createWithoutSpring(extensionClass));
+        return getApplicationContextBy(extensionClass).orElse(null);
+    }
+
+    /**
+     * Returns the receiver of the measurements, the one of the {@link #pluginManager} if it's
+     * a {@link SpringPluginManager}.
+     */
+    protected SpringPluginMetrics getMetrics() {
+        return (this.pluginManager instanceof SpringPluginManager)
+            ? ((SpringPluginManager) this.pluginManager).getMetrics()
+            : SpringPluginMetrics.NONE;
+    }
+
+    /**
+     * Returns {@code false} if the extension index (see {@link ExtensionIndex}) of the given {@code extensionClass}
+     * says that the extension has no injection points and no lifecycle callbacks, so it's created without Spring.
+     * Returns {@code true} if the extension class is not indexed.
+     */
+    protected boolean requiresSpring(final Class<?> extensionClass) {
+        if (!(this.pluginManager instanceof SpringPluginManager)) {
+            return true;
+        }
+
+        final ExtensionIndex.Entry entry = ((SpringPluginManager) this.pluginManager)
+            .getExtensionIndex(extensionClass.getClassLoader())
+            .getEntry(extensionClass.getName());
+
+        return entry == null || entry.requiresSpring();
+    }
+
+    /**
+     * Discards the resolved application context of a plugin when the state of the plugin changes.
+     */
+    @Override
+    public void pluginStateChanged(final PluginStateEvent event) {
+        this.applicationContextSuppliers.remove(event.getPlugin().getPluginClassLoader());
+        this.springPlugins.remove(event.getPlugin().getPluginClassLoader());
+    }
+
+    /**
+     * Records an access to the plugin of the given extension class (see {@link SpringPlugin#touch()}).
+     * A subclass calls it when it returns an extension created before (for example from a cache), that doesn't request
+     * the application context of its plugin, so that the context is not passivated while the extension is used.
+     */
+    protected void touchPlugin(final Class<?> extensionClass) {
+        final ClassLoader classLoader = extensionClass.getClassLoader();
+        Optional<SpringPlugin> springPlugin = this.springPlugins.get(classLoader);
+        if (springPlugin == null) {
+            springPlugin = this.springPlugins.computeIfAbsent(classLoader, key -> Optional.ofNullable(this.pluginManager.whichPlugin(extensionClass))
+                .map(PluginWrapper::getPlugin)
+                .filter(SpringPlugin.class::isInstance)
+                .map(SpringPlugin.class::cast));
+        }
+
+        springPlugin.ifPresent(SpringPlugin::touch);
+    }
+
+    /**
+     * Releases the extensions kept for a plugin, when the plugin is stopped or unloaded or when its application context
+     * is closed while the plugin is started (see {@link SpringPlugin#passivate()}).
+     * This implementation keeps no extension.
+     */
+    public void evictExtensions(final PluginWrapper plugin) {
+    }
+
+    /**
+     * Returns {@code true} if the extensions of the plugin of the given extension class are evicted, because the plugin
+     * is stopped or unloaded. A subclass that keeps extensions checks it after it added an entry for a plugin, to drop
+     * the entry added concurrently with (so after) the eviction (see {@link #evictExtensions(PluginWrapper)}).
+     */
+    protected boolean isEvicted(final Class<?> extensionClass) {
+        final PluginWrapper plugin = this.pluginManager.whichPlugin(extensionClass);
+        if (plugin == null) {
+            // an extension of the application, or of a plugin already unloaded
+            return extensionClass.getClassLoader() instanceof PluginClassLoader;
+        }
+
+        return plugin.getPluginState().isStopped() || plugin.getPluginState().isUnloaded();
     }
 
     /**
@@ -139,19 +256,19 @@ public class SpringExtensionFactory implements ExtensionFactory {
     protected <T> T createWithSpring(final Class<T> extensionClass, final ApplicationContext applicationContext) {
         final AutowireCapableBeanFactory beanFactory = applicationContext.getAutowireCapableBeanFactory();
 
-        log.debug("Instantiate extension class '" + nameOf(extensionClass) + "' by using constructor autowiring.");
+        log.debug("Instantiate extension class '{}' by using constructor autowiring.", nameOf(extensionClass));
         // Autowire by constructor. This does not include the other types of injection (setters and/or fields).
         final Object autowiredExtension = beanFactory.autowire(extensionClass, AUTOWIRE_CONSTRUCTOR,
             // The value of the 'dependencyCheck' parameter is actually irrelevant as the using constructor of 'RootBeanDefinition'
             // skips action when the autowire mode is set to 'AUTOWIRE_CONSTRUCTOR'. Although the default value in
             // 'AbstractBeanDefinition' is 'DEPENDENCY_CHECK_NONE', so it is set to false here as well.
             false);
-        log.trace("Created extension instance by constructor injection: " + autowiredExtension);
+        log.trace("Created extension instance by constructor injection: {}", autowiredExtension);
 
-        log.debug("Completing autowiring of extension: " + autowiredExtension);
+        log.debug("Completing autowiring of extension: {}", autowiredExtension);
         // Autowire by using remaining kinds of injection (e. g. setters and/or fields).
         beanFactory.autowireBean(autowiredExtension);
-        log.trace("Autowiring has been completed for extension: " + autowiredExtension);
+        log.trace("Autowiring has been completed for extension: {}", autowiredExtension);
 
         return (T) autowiredExtension;
     }
@@ -171,36 +288,46 @@ public class SpringExtensionFactory implements ExtensionFactory {
      * @return the best fitting context, or {@code null}.
      */
     protected <T> Optional<ApplicationContext> getApplicationContextBy(final Class<T> extensionClass) {
+        final ClassLoader classLoader = extensionClass.getClassLoader();
+        Supplier<ApplicationContext> applicationContextSupplier = this.applicationContextSuppliers.get(classLoader);
+        if (applicationContextSupplier == null) {
+            applicationContextSupplier = this.applicationContextSuppliers.computeIfAbsent(classLoader,
+                key -> resolveApplicationContextSupplier(extensionClass));
+        }
+
+        return Optional.ofNullable(applicationContextSupplier.get());
+    }
+
+    private Supplier<ApplicationContext> resolveApplicationContextSupplier(final Class<?> extensionClass) {
         final Plugin plugin = Optional.ofNullable(this.pluginManager.whichPlugin(extensionClass))
             .map(PluginWrapper::getPlugin)
             .orElse(null);
 
-        final ApplicationContext applicationContext;
-
         if (plugin instanceof SpringPlugin) {
-            log.debug("  Extension class ' " + nameOf(extensionClass) + "' belongs to spring-plugin '" + nameOf(plugin)
-                      + "' and will be autowired by using its application context.");
-            applicationContext = ((SpringPlugin) plugin).getApplicationContext();
+            log.debug("  Extension class '{}' belongs to spring-plugin '{}' and will be autowired by using its application context.",
+                nameOf(extensionClass), nameOf(plugin));
+            return ((SpringPlugin) plugin)::getApplicationContext;
         } else if (this.pluginManager instanceof SpringPluginManager) {
-            log.debug("  Extension class ' " + nameOf(extensionClass) + "' belongs to a non spring-plugin (or main application)" +
-                      " '" + nameOf(plugin) + ", but the used PF4J plugin-manager is a spring-plugin-manager. Therefore" +
-                      " the extension class will be autowired by using the managers application contexts");
-            applicationContext = ((SpringPluginManager) this.pluginManager).getApplicationContext();
+            log.debug("  Extension class '{}' belongs to a non spring-plugin (or main application) '{}', but the used PF4J" +
+                      " plugin-manager is a spring-plugin-manager. Therefore the extension class will be autowired by using" +
+                      " the managers application contexts", nameOf(extensionClass), nameOf(plugin));
+            return ((SpringPluginManager) this.pluginManager)::getApplicationContext;
         } else {
-            log.warn("  No application contexts can be used for instantiating extension class '" + nameOf(extensionClass) + "'."
-                     + " This extension neither belongs to a PF4J spring-plugin (id: '" + nameOf(plugin) + "') nor is the used" +
-                     " plugin manager a spring-plugin-manager (used manager: '" + nameOf(this.pluginManager.getClass()) + "')." +
+            log.warn("  No application contexts can be used for instantiating extension class '{}'."
+                     + " This extension neither belongs to a PF4J spring-plugin (id: '{}') nor is the used" +
+                     " plugin manager a spring-plugin-manager (used manager: '{}')." +
                      " At perspective of PF4J this seems highly uncommon in combination with a factory which only reason for existence" +
                      " is using spring (and its application context) and should at least be reviewed. In fact no autowiring can be" +
-                     " applied although autowire flag was set to 'true'. Instantiating will fallback to standard Java reflection.");
-            applicationContext = null;
+                     " applied although autowire flag was set to 'true'. Instantiating will fallback to standard Java reflection.",
+                     nameOf(extensionClass), nameOf(plugin), nameOf(this.pluginManager.getClass()));
+            return () -> null;
         }
-
-        return Optional.ofNullable(applicationContext);
     }
 
     /**
-     * Creates an instance of the given class object by using standard Java reflection.
+     * Creates an instance of the given class object without Spring.
+     * The instantiation plan of each class (see {@link InstantiationPlan}) is computed only once, so that
+     * the repeated creation doesn't pay for constructor lookup and reflection.
      *
      * @param extensionClass The class annotated with {@code @}{@link Extension}.
      * @param <T>            The type for that an instance should be created.
@@ -210,33 +337,21 @@ public class SpringExtensionFactory implements ExtensionFactory {
      */
     @SuppressWarnings("unchecked")
     protected <T> T createWithoutSpring(final Class<T> extensionClass) throws IllegalArgumentException {
-        final Constructor<?> constructor = getPublicConstructorWithShortestParameterList(extensionClass)
-            // An extension class is required to have at least one public constructor.
-            .orElseThrow(() -> new IllegalArgumentException("Extension class '" + nameOf(extensionClass)
-                                                            + "' must have at least one public constructor."));
+        final InstantiationPlan instantiationPlan = InstantiationPlan.of(extensionClass);
         try {
-            log.debug("Instantiate '" + nameOf(extensionClass) + "' by calling '" + constructor + "'with standard Java reflection.");
+            log.debug("Instantiate '{}' by calling '{}' without Spring.", nameOf(extensionClass), instantiationPlan.getConstructor());
             // Creating the instance by calling the constructor with null-parameters (if there are any).
-            return (T) constructor.newInstance(nullParameters(constructor));
+            return (T) instantiationPlan.newInstance();
         } catch (final InstantiationException | IllegalAccessException | InvocationTargetException ex) {
             // If one of these exceptions is thrown it it most likely because of NPE inside the called constructor and
             // not the reflective call itself as we precisely searched for a fitting constructor.
             log.error(ex.getMessage(), ex);
-            throw new RuntimeException("Most likely this exception is thrown because the called constructor (" + constructor + ")" +
-                                       " cannot handle 'null' parameters. Original message was: "
-                                       + ex.getMessage(), ex);
+            throw new RuntimeException("Most likely this exception is thrown because the called constructor ("
+                                       + instantiationPlan.getConstructor() + ") cannot handle 'null' parameters."
+                                       + " Original message was: " + ex.getMessage(), ex);
         }
     }
 
-    private Optional<Constructor<?>> getPublicConstructorWithShortestParameterList(final Class<?> extensionClass) {
-        return Stream.of(extensionClass.getConstructors())
-            .min(Comparator.comparing(Constructor::getParameterCount));
-    }
-
-    private Object[] nullParameters(final Constructor<?> constructor) {
-        return new Object[constructor.getParameterCount()];
-    }
-
     private String nameOf(final Plugin plugin) {
         return nonNull(plugin)
             ? plugin.getWrapper().getPluginId()
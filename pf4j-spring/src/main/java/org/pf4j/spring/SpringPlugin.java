@@ -16,32 +16,216 @@
 package org.pf4j.spring;
 
 import org.pf4j.Plugin;
+import org.pf4j.PluginManager;
 import org.pf4j.PluginWrapper;
 import org.springframework.context.ApplicationContext;
 import org.springframework.context.ConfigurableApplicationContext;
+import org.springframework.core.metrics.ApplicationStartup;
+import org.springframework.core.metrics.StartupStep;
+
+import java.lang.management.ManagementFactory;
+import java.lang.management.ThreadMXBean;
+import java.time.Duration;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
 
 /**
+ * A plugin with its own Spring application context, created on first use (see {@link #getApplicationContext()}).
+ * <p>
+ * The application context is created exactly once (until it's closed) even if it's requested concurrently,
+ * and the read of an already created context doesn't acquire any lock.
+ * The time of the last access (used to passivate an idle context, see {@link #passivateIfIdle(Duration)})
+ * is updated by {@link #getApplicationContext()} and by {@link #touch()}, at most once per
+ * {@value #ACCESS_TIME_RESOLUTION_MILLIS} ms, so the concurrent reads don't write a shared field on each call.
+ *
  * @author Decebal Suiu
  */
 public abstract class SpringPlugin extends Plugin {
 
-    protected ApplicationContext applicationContext;
+    /**
+     * The resolution of {@link #getLastAccessTime()}, in milliseconds.
+     */
+    public static final long ACCESS_TIME_RESOLUTION_MILLIS = 10;
+
+    private static final long ACCESS_TIME_RESOLUTION_NANOS = TimeUnit.MILLISECONDS.toNanos(ACCESS_TIME_RESOLUTION_MILLIS);
+
+    private static final ThreadMXBean threadMXBean = ManagementFactory.getThreadMXBean();
+
+    protected volatile ApplicationContext applicationContext;
+
+    private volatile long lastAccessTime = System.nanoTime();
+    private final AtomicInteger refreshCount = new AtomicInteger();
+    private final AtomicInteger passivationCount = new AtomicInteger();
+    private volatile long contextAllocatedBytes = -1;
 
     public SpringPlugin(PluginWrapper wrapper) {
         super(wrapper);
     }
 
     public final ApplicationContext getApplicationContext() {
-        if (applicationContext == null) {
-            applicationContext = createApplicationContext();
+        // the access time is written before the read of the context (see passivateIfIdle)
+        touch();
+        ApplicationContext result = applicationContext;
+        if (result == null) {
+            // slow path, the context is created under the lock of this plugin (the same lock as stop() and passivate())
+            synchronized (this) {
+                result = applicationContext;
+                if (result == null) {
+                    long start = System.nanoTime();
+                    long allocatedBytes = currentThreadAllocatedBytes();
+                    StartupStep step = getApplicationStartup().start("pf4j.plugin.context.create")
+                        .tag("pluginId", wrapper.getPluginId());
+                    try {
+                        result = createApplicationContext();
+                    } finally {
+                        step.end();
+                    }
+                    // a new context is not idle
+                    lastAccessTime = System.nanoTime();
+                    applicationContext = result;
+                    refreshCount.incrementAndGet();
+                    getMetrics().applicationContextCreated(wrapper.getPluginId(), result, System.nanoTime() - start);
+                    contextAllocatedBytes = (allocatedBytes >= 0) ? currentThreadAllocatedBytes() - allocatedBytes : -1;
+                    if (contextAllocatedBytes >= 0) {
+                        getMetrics().applicationContextAllocated(wrapper.getPluginId(), contextAllocatedBytes);
+                    }
+                }
+            }
         }
 
-        return applicationContext;
+        return result;
+    }
+
+    /**
+     * Records an access to the plugin without requesting its application context, so that the context is not
+     * passivated as idle (see {@link #passivateIfIdle(Duration)}).
+     * It's called when an extension of the plugin created before (that may use the beans of the context)
+     * is returned again, for example from the cache of {@link SingletonSpringExtensionFactory}.
+     */
+    public final void touch() {
+        long now = System.nanoTime();
+        if (now - lastAccessTime >= ACCESS_TIME_RESOLUTION_NANOS) {
+            lastAccessTime = now;
+        }
     }
 
     @Override
-    public void stop() {
-        // close applicationContext
+    public synchronized void stop() {
+        closeApplicationContext();
+    }
+
+    /**
+     * Closes the application context of the plugin, if it was created, while the plugin stays started.
+     * The context is created again on the next {@link #getApplicationContext()}.
+     *
+     * @return {@code true} if a context was closed
+     */
+    public synchronized boolean passivate() {
+        if (applicationContext == null) {
+            return false;
+        }
+
+        closeApplicationContext();
+        passivated();
+
+        return true;
+    }
+
+    /**
+     * Closes the application context of the plugin (see {@link #passivate()}) if it was not requested
+     * for longer than the given timeout. Used by {@link SpringPluginManager} to passivate an idle context
+     * (see {@link SpringPluginManager#setContextIdleTimeout(Duration)}).
+     * <p>
+     * The idleness is checked under the lock of the plugin, and checked again after the context is unpublished,
+     * so a context returned concurrently by {@link #getApplicationContext()} is not closed.
+     * As the access time is updated at most once per {@value #ACCESS_TIME_RESOLUTION_MILLIS} ms,
+     * the context is idle for at least the timeout plus this resolution.
+     *
+     * @return {@code true} if a context was closed
+     */
+    public synchronized boolean passivateIfIdle(Duration idleTimeout) {
+        ApplicationContext context = applicationContext;
+        long accessTime = lastAccessTime;
+        if (context == null || System.nanoTime() - accessTime <= idleTimeout.toNanos() + ACCESS_TIME_RESOLUTION_NANOS) {
+            return false;
+        }
+
+        // a reader writes the access time and then reads the context: either it reads null (and waits for this lock),
+        // or its access time is read below
+        applicationContext = null;
+        if (lastAccessTime != accessTime) {
+            applicationContext = context;
+            return false;
+        }
+
+        applicationContext = context;
+        closeApplicationContext();
+        passivated();
+
+        return true;
+    }
+
+    /**
+     * Returns {@code true} if the application context of the plugin is created (and not closed).
+     */
+    public boolean isApplicationContextCreated() {
+        return applicationContext != null;
+    }
+
+    /**
+     * Returns the time (as {@link System#nanoTime()}) of the last {@link #getApplicationContext()} or {@link #touch()}
+     * (with a resolution of {@value #ACCESS_TIME_RESOLUTION_MILLIS} ms), of the last creation of the context,
+     * or of the creation of the plugin.
+     */
+    public long getLastAccessTime() {
+        return lastAccessTime;
+    }
+
+    /**
+     * Returns how many times the application context of the plugin was created.
+     */
+    public int getRefreshCount() {
+        return refreshCount.get();
+    }
+
+    /**
+     * Returns how many times the application context of the plugin was passivated (see {@link #passivate()}).
+     */
+    public int getPassivationCount() {
+        return passivationCount.get();
+    }
+
+    /**
+     * Returns the bytes of heap allocated to create (and refresh) the last application context of the plugin,
+     * or {@code -1} if the context was not created or the JVM doesn't measure the allocations of a thread.
+     * Only the allocations of the thread that created the context are counted, including the short-lived ones,
+     * so it's an estimate of the memory held by the context (and released by its passivation), not an exact size.
+     */
+    public long getContextAllocatedBytes() {
+        return contextAllocatedBytes;
+    }
+
+    protected abstract ApplicationContext createApplicationContext();
+
+    /**
+     * Returns the {@link ApplicationStartup} of the host application context (see {@link SpringPluginManager#getApplicationStartup()}).
+     * Set it on the application context created in {@link #createApplicationContext()}, before refresh,
+     * so that the startup steps of the plugin context are recorded together with the steps of the host:
+     * <pre>{@code
+     *     applicationContext.setApplicationStartup(getApplicationStartup());
+     * }</pre>
+     * The context may be created on any thread; unless the host uses a {@link TracingApplicationStartup},
+     * only the contexts created on the thread of {@link SpringPluginManager#init()} are recorded.
+     */
+    protected ApplicationStartup getApplicationStartup() {
+        PluginManager pluginManager = wrapper.getPluginManager();
+
+        return (pluginManager instanceof SpringPluginManager)
+            ? ((SpringPluginManager) pluginManager).getApplicationStartup()
+            : ApplicationStartup.DEFAULT;
+    }
+
+    private void closeApplicationContext() {
         if (applicationContext instanceof ConfigurableApplicationContext) {
             ((ConfigurableApplicationContext) applicationContext).close();
         }
@@ -49,6 +233,26 @@ public abstract class SpringPlugin extends Plugin {
         applicationContext = null;
     }
 
-    protected abstract ApplicationContext createApplicationContext();
+    private void passivated() {
+        passivationCount.incrementAndGet();
+        getMetrics().applicationContextPassivated(wrapper.getPluginId());
+    }
+
+    /**
+     * Returns the bytes allocated by the current thread since its start, or {@code -1} if they are not measured.
+     */
+    private static long currentThreadAllocatedBytes() {
+        return (threadMXBean instanceof com.sun.management.ThreadMXBean)
+            ? ((com.sun.management.ThreadMXBean) threadMXBean).getCurrentThreadAllocatedBytes()
+            : -1;
+    }
+
+    private SpringPluginMetrics getMetrics() {
+        PluginManager pluginManager = wrapper.getPluginManager();
+
+        return (pluginManager instanceof SpringPluginManager)
+            ? ((SpringPluginManager) pluginManager).getMetrics()
+            : SpringPluginMetrics.NONE;
+    }
 
 }
@@ -17,21 +17,114 @@ package org.pf4j.spring;
 
 import org.pf4j.DefaultPluginManager;
 import org.pf4j.ExtensionFactory;
+import org.pf4j.ExtensionWrapper;
+import org.pf4j.PluginClassLoader;
+import org.pf4j.PluginRuntimeException;
+import org.pf4j.PluginState;
+import org.pf4j.PluginStateEvent;
+import org.pf4j.PluginWrapper;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
 import org.springframework.beans.BeansException;
 import org.springframework.beans.factory.support.AbstractAutowireCapableBeanFactory;
+import org.springframework.beans.factory.support.BeanDefinitionRegistry;
 import org.springframework.context.ApplicationContext;
 import org.springframework.context.ApplicationContextAware;
+import org.springframework.context.ApplicationEvent;
+import org.springframework.context.ApplicationListener;
+import org.springframework.context.ConfigurableApplicationContext;
+import org.springframework.context.event.ContextRefreshedEvent;
+import org.springframework.core.metrics.ApplicationStartup;
+import org.springframework.core.metrics.StartupStep;
+import org.springframework.core.type.classreading.MetadataReader;
+import org.springframework.core.type.classreading.MetadataReaderFactory;
 
 import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
 import java.nio.file.Path;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.LinkedHashSet;
 import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.stream.Collectors;
 
 /**
  * @author Decebal Suiu
  */
 public class SpringPluginManager extends DefaultPluginManager implements ApplicationContextAware {
 
+    private static final Logger log = LoggerFactory.getLogger(SpringPluginManager.class);
+
+    /**
+     * The name of the bean that creates the injected {@link PluginExtensions}.
+     */
+    public static final String PLUGIN_EXTENSIONS_BEAN_NAME = "pluginExtensions";
+
     private ApplicationContext applicationContext;
+    private int bootstrapThreads = 1;
+    private InjectionMode injectionMode = InjectionMode.EAGER;
+    private SpringPluginMetrics metrics = SpringPluginMetrics.NONE;
+    private boolean extensionsCacheEnabled;
+    private boolean asyncStartup;
+    private Duration contextIdleTimeout;
+    private volatile ThreadConfinedApplicationStartup confinedApplicationStartup;
+    private ScheduledExecutorService passivationScheduler;
+    private ExtensionsInjector extensionsInjector;
+
+    /**
+     * The metadata of the application classes, shared by the plugins (see {@link #createMetadataReaderFactory(ClassLoader)}),
+     * by class file URL.
+     */
+    private final ConcurrentMap<String, MetadataReader> applicationMetadataReaders = new ConcurrentHashMap<>();
+
+    /**
+     * The metadata of the other classes, by class loader and class file URL.
+     */
+    private final Map<ClassLoader, ConcurrentMap<String, MetadataReader>> metadataReaders = new ConcurrentHashMap<>();
+
+    /**
+     * The extension indexes (see {@link ExtensionIndex}) by class loader.
+     */
+    private final ConcurrentMap<ClassLoader, ExtensionIndex> extensionIndexes = new ConcurrentHashMap<>();
+
+    /**
+     * The snapshots of {@link #getExtensions(Class)} by extension point (see {@link #setExtensionsCacheEnabled(boolean)}).
+     */
+    private final ConcurrentMap<Class<?>, ExtensionsSnapshot> extensionsCache = new ConcurrentHashMap<>();
+
+    /**
+     * Incremented on each plugin state change; a snapshot taken in another version is stale.
+     */
+    private final AtomicLong extensionsVersion = new AtomicLong();
+
+    /**
+     * The readiness of the plugins started by {@link #init()}, by plugin id.
+     */
+    private final ConcurrentMap<String, CompletableFuture<PluginWrapper>> pluginsReadiness = new ConcurrentHashMap<>();
+
+    /**
+     * The class loaders of the plugins not (yet) ready, whose extensions are hidden from the lookups.
+     */
+    private final Set<ClassLoader> pendingClassLoaders = ConcurrentHashMap.newKeySet();
+
+    /**
+     * The events of the asynchronous startup held until the host application context is refreshed
+     * (its {@code @EventListener} methods are registered at the end of the refresh).
+     * Guarded by itself, as {@link #hostRefreshed}.
+     */
+    private final List<ApplicationEvent> deferredEvents = new ArrayList<>();
+    private boolean hostRefreshed;
 
     public SpringPluginManager() {
         super();
@@ -45,6 +138,13 @@ public class SpringPluginManager extends DefaultPluginManager implements Applica
         super(pluginsRoots);
     }
 
+    @Override
+    protected void initialize() {
+        super.initialize();
+
+        addPluginStateListener(this::evictCaches);
+    }
+
     @Override
     protected ExtensionFactory createExtensionFactory() {
         return new SpringExtensionFactory(this);
@@ -60,16 +160,543 @@ public class SpringPluginManager extends DefaultPluginManager implements Applica
     }
 
     /**
-     * This method load, start plugins and inject extensions in Spring
+     * Returns the {@link ApplicationStartup} of the host application context, that records the steps
+     * of the plugins lifecycle ({@code pf4j.*}) and of the application contexts of the plugins
+     * (see {@link SpringPlugin#getApplicationStartup()}).
+     * It's {@link ApplicationStartup#DEFAULT} (records nothing) if the host context is not configurable.
+     * <p>
+     * The steps are started from several threads at once (the bootstrap threads, the parallel injection,
+     * the asynchronous startup and the threads that create a plugin context on first use).
+     * A {@link TracingApplicationStartup} records them all. Any other {@link ApplicationStartup}
+     * (for example {@code FlightRecorderApplicationStartup}) is not assumed thread safe: it records only the steps
+     * started on the thread that called {@link #init()} (see {@link ThreadConfinedApplicationStartup}).
+     */
+    public ApplicationStartup getApplicationStartup() {
+        ApplicationStartup applicationStartup = (applicationContext instanceof ConfigurableApplicationContext)
+            ? ((ConfigurableApplicationContext) applicationContext).getApplicationStartup()
+            : ApplicationStartup.DEFAULT;
+        if (ThreadConfinedApplicationStartup.isThreadSafe(applicationStartup)) {
+            return applicationStartup;
+        }
+
+        ThreadConfinedApplicationStartup confinedStartup = confinedApplicationStartup;
+        if (confinedStartup == null || confinedStartup.getDelegate() != applicationStartup) {
+            confinedApplicationStartup = confinedStartup = new ThreadConfinedApplicationStartup(applicationStartup);
+        }
+
+        return confinedStartup;
+    }
+
+    /**
+     * Creates a {@link MetadataReaderFactory} for the application context of a plugin, that resolves the classes
+     * with the given class loader, shares the metadata of the application classes with all the plugins
+     * and caches the metadata of the other classes per class loader (see {@link SharedMetadataReaderFactory}).
+     * The metadata cached for a plugin class loader is evicted when the plugin is unloaded.
+     */
+    public MetadataReaderFactory createMetadataReaderFactory(ClassLoader classLoader) {
+        ClassLoader applicationClassLoader = (classLoader instanceof PluginClassLoader) ? classLoader.getParent() : classLoader;
+
+        return new SharedMetadataReaderFactory(classLoader, applicationClassLoader, applicationMetadataReaders,
+            metadataReaders.computeIfAbsent(classLoader, key -> new ConcurrentHashMap<>()));
+    }
+
+    /**
+     * Returns the extension index (see {@link ExtensionIndex}) visible from a class loader, read once
+     * (until the plugin of the class loader is unloaded).
+     */
+    public ExtensionIndex getExtensionIndex(ClassLoader classLoader) {
+        ExtensionIndex extensionIndex = extensionIndexes.get(classLoader);
+        if (extensionIndex == null) {
+            extensionIndex = extensionIndexes.computeIfAbsent(classLoader, ExtensionIndex::load);
+        }
+
+        return extensionIndex;
+    }
+
+    public int getBootstrapThreads() {
+        return bootstrapThreads;
+    }
+
+    /**
+     * Sets the number of threads used to create the application contexts of the started {@link SpringPlugin}s
+     * before the extensions are injected in Spring.
+     * The default value is {@code 1}, which means that each context is created (sequentially) on first use.
+     * A value greater than {@code 1} enables the parallel bootstrap (see {@link ApplicationContextsBootstrap}).
+     */
+    public void setBootstrapThreads(int bootstrapThreads) {
+        if (bootstrapThreads < 1) {
+            throw new IllegalArgumentException("The number of bootstrap threads must be greater than zero");
+        }
+
+        this.bootstrapThreads = bootstrapThreads;
+    }
+
+    public InjectionMode getInjectionMode() {
+        return injectionMode;
+    }
+
+    /**
+     * Sets how the extensions are exposed as Spring beans (see {@link InjectionMode}).
+     * The default value is {@link InjectionMode#EAGER}.
+     */
+    public void setInjectionMode(InjectionMode injectionMode) {
+        this.injectionMode = injectionMode;
+    }
+
+    public SpringPluginMetrics getMetrics() {
+        return metrics;
+    }
+
+    /**
+     * Sets the receiver of the measurements of the plugins lifecycle and of the extensions creation
+     * (see {@link SpringPluginMetrics}). By default nothing is recorded.
+     */
+    public void setMetrics(SpringPluginMetrics metrics) {
+        this.metrics = (metrics != null) ? metrics : SpringPluginMetrics.NONE;
+    }
+
+    public boolean isExtensionsCacheEnabled() {
+        return extensionsCacheEnabled;
+    }
+
+    /**
+     * Enables the cache of {@link #getExtensions(Class)}.
+     * When enabled, the extensions of an extension point are looked up and created once and the same immutable list
+     * (ordered by ordinal) is returned to the next calls, until the state of a plugin changes (a plugin is loaded,
+     * started, stopped, unloaded, etc.), so a repeated lookup doesn't allocate and doesn't lock.
+     * Enable it only if the callers don't expect new extension instances on each call
+     * (as with {@link SingletonSpringExtensionFactory}). The default value is {@code false}.
+     */
+    public void setExtensionsCacheEnabled(boolean extensionsCacheEnabled) {
+        this.extensionsCacheEnabled = extensionsCacheEnabled;
+        extensionsCache.clear();
+    }
+
+    public boolean isAsyncStartup() {
+        return asyncStartup;
+    }
+
+    /**
+     * Enables the asynchronous startup.
+     * When enabled, {@link #init()} loads and starts the plugins and injects the extensions from classpath, but
+     * the application contexts of the plugins are created and the extensions of the plugins are registered as beans
+     * on a background thread, one plugin after the other (in dependency order), so the host application context
+     * is not blocked. For each plugin a {@link PluginContextReadyEvent} (for a {@link SpringPlugin}) and
+     * a {@link PluginExtensionsRegisteredEvent} are published in the host application context and the future
+     * returned by {@link #whenPluginReady(String)} is completed.
+     * Until then, the extensions of the plugin are not returned by the extension lookups of the plugin manager.
+     * The events of the plugins ready while the host application context is refreshed are published
+     * after its {@link ContextRefreshedEvent}, so they reach the {@code @EventListener} methods of the host.
+     * The default value is {@code false}.
+     */
+    public void setAsyncStartup(boolean asyncStartup) {
+        this.asyncStartup = asyncStartup;
+    }
+
+    /**
+     * Returns a future completed when the application context of a started plugin was created
+     * and its extensions were registered as beans (immediately if the startup is not asynchronous),
+     * or completed exceptionally if they could not be.
+     * Returns {@code null} if the plugin is not started.
+     */
+    public CompletableFuture<PluginWrapper> whenPluginReady(String pluginId) {
+        return pluginsReadiness.get(pluginId);
+    }
+
+    /**
+     * Returns a future completed when all the plugins started by {@link #init()} are ready
+     * (see {@link #whenPluginReady(String)}).
+     */
+    public CompletableFuture<Void> whenPluginsReady() {
+        return CompletableFuture.allOf(pluginsReadiness.values().toArray(new CompletableFuture[0]));
+    }
+
+    public Duration getContextIdleTimeout() {
+        return contextIdleTimeout;
+    }
+
+    /**
+     * Enables the passivation of the idle application contexts of the plugins.
+     * When enabled, {@link #init()} schedules a background task that closes the context of each started
+     * {@link SpringPlugin} not used (see {@link SpringPlugin#getLastAccessTime()}) for longer than the given timeout
+     * and releases the extensions kept for the plugin by the extension factory (for example the singletons).
+     * A plugin is used when its context is requested, when the extension factory returns one of its extensions
+     * from a cache (a singleton, a pooled or a thread scoped instance) and when {@link #getExtensions(Class)}
+     * returns its extensions from the extensions cache.
+     * The context is created again when an extension of the plugin is created.
+     * <p>
+     * Use it with the extensions obtained from the plugin manager (or with {@link InjectionMode#LAZY} beans not yet
+     * created), since an extension already created keeps the beans of the closed context.
+     * With the other injection modes the extensions are singletons of the host application context, created
+     * with the first context of their plugin, so {@link #init()} logs a warning.
+     * The default value is {@code null} (no passivation).
+     */
+    public void setContextIdleTimeout(Duration contextIdleTimeout) {
+        this.contextIdleTimeout = contextIdleTimeout;
+    }
+
+    /**
+     * Closes the application contexts of the started {@link SpringPlugin}s not used for longer than the given timeout
+     * (see {@link SpringPlugin#passivateIfIdle(Duration)}) and releases the extensions kept for these plugins by the extension factory.
+     *
+     * @return the number of closed contexts
+     */
+    public int passivateIdleContexts(Duration idleTimeout) {
+        int count = 0;
+        for (PluginWrapper plugin : getStartedPlugins()) {
+            if (!(plugin.getPlugin() instanceof SpringPlugin)) {
+                continue;
+            }
+
+            SpringPlugin springPlugin = (SpringPlugin) plugin.getPlugin();
+            if (springPlugin.passivateIfIdle(idleTimeout)) {
+                log.debug("Passivated the idle application context of plugin '{}'", plugin.getPluginId());
+                if (getExtensionFactory() instanceof SpringExtensionFactory) {
+                    ((SpringExtensionFactory) getExtensionFactory()).evictExtensions(plugin);
+                }
+                count++;
+            }
+        }
+
+        if (count > 0) {
+            evictExtensionsCache();
+        }
+
+        return count;
+    }
+
+    @Override
+    @SuppressWarnings("unchecked")
+    public <T> List<T> getExtensions(Class<T> type) {
+        if (!extensionsCacheEnabled) {
+            return super.getExtensions(type);
+        }
+
+        long version = extensionsVersion.get();
+        ExtensionsSnapshot snapshot = extensionsCache.get(type);
+        if (snapshot == null || snapshot.version != version) {
+            List<T> extensions = super.getExtensions(type);
+            snapshot = new ExtensionsSnapshot(version, Collections.unmodifiableList(new ArrayList<>(extensions)), springPluginsOf(extensions));
+            // a snapshot taken during a state change is stale, so it's never returned in the new version
+            if (extensionsVersion.get() == version) {
+                extensionsCache.put(type, snapshot);
+            }
+        } else {
+            // the cached extensions use the contexts of their plugins (see setContextIdleTimeout)
+            for (SpringPlugin springPlugin : snapshot.springPlugins) {
+                springPlugin.touch();
+            }
+        }
+
+        return (List<T>) snapshot.extensions;
+    }
+
+    /**
+     * Hides the extensions of the plugins not (yet) ready (see {@link #setAsyncStartup(boolean)}).
+     */
+    @Override
+    protected <T> List<T> getExtensions(List<ExtensionWrapper<T>> extensionsWrapper) {
+        return super.getExtensions(withoutPendingPlugins(extensionsWrapper));
+    }
+
+    /**
+     * Returns a lazy view of the extensions of the given extension point (see {@link PluginExtensions}).
+     */
+    public <T> PluginExtensions<T> getPluginExtensions(Class<T> type) {
+        return new PluginExtensions<>(this, type);
+    }
+
+    /**
+     * Returns the extensions (not yet created) of the given extension point, in ordinal order,
+     * without the extensions of the plugins not ready.
+     */
+    public <T> List<ExtensionWrapper<T>> findExtensions(Class<T> type) {
+        return withoutPendingPlugins(extensionFinder.find(type));
+    }
+
+    /**
+     * Returns the extensions (not yet created) of the given extension point provided by the given plugin
+     * (or by the host application for {@code null}), in ordinal order.
+     */
+    public <T> List<ExtensionWrapper<T>> findExtensions(Class<T> type, String pluginId) {
+        return withoutPendingPlugins(extensionFinder.find(type, pluginId));
+    }
+
+    /**
+     * This method load, start plugins and inject extensions in Spring.
+     * After this method, the extensions of a plugin are registered as beans when the plugin is started
+     * and are unregistered when the plugin is stopped.
      */
     @PostConstruct
     public void init() {
+        long start = System.nanoTime();
+        // the steps are recorded on this thread (see getApplicationStartup)
+        confinedApplicationStartup = null;
+        ApplicationStartup applicationStartup = getApplicationStartup();
+
+        StartupStep loadStep = applicationStartup.start("pf4j.plugins.load");
         loadPlugins();
+        loadStep.tag("plugins", () -> String.valueOf(getPlugins().size())).end();
+
+        StartupStep startStep = applicationStartup.start("pf4j.plugins.start");
         startPlugins();
+        startStep.tag("plugins", () -> String.valueOf(getStartedPlugins().size())).end();
+
+        if (bootstrapThreads > 1) {
+            StartupStep bootstrapStep = applicationStartup.start("pf4j.plugins.bootstrap")
+                .tag("threads", String.valueOf(bootstrapThreads));
+            new ApplicationContextsBootstrap(bootstrapThreads).bootstrap(getStartedPlugins());
+            bootstrapStep.end();
+        }
 
         AbstractAutowireCapableBeanFactory beanFactory = (AbstractAutowireCapableBeanFactory) applicationContext.getAutowireCapableBeanFactory();
-        ExtensionsInjector extensionsInjector = new ExtensionsInjector(this, beanFactory);
-        extensionsInjector.injectExtensions();
+        extensionsInjector = createExtensionsInjector(beanFactory);
+        List<PluginWrapper> startedPlugins = getStartedPlugins();
+        if (asyncStartup) {
+            extensionsInjector.injectSystemExtensions();
+            startPluginsAsync(startedPlugins);
+        } else {
+            extensionsInjector.injectExtensions();
+            for (PluginWrapper plugin : startedPlugins) {
+                pluginsReadiness.put(plugin.getPluginId(), CompletableFuture.completedFuture(plugin));
+            }
+        }
+
+        addPluginStateListener(this::injectOrEjectExtensions);
+        registerPluginExtensionsBean(beanFactory);
+
+        if (contextIdleTimeout != null) {
+            if (injectionMode != InjectionMode.LAZY) {
+                log.warn("The idle application contexts are passivated with the injection mode {}: the extension beans"
+                    + " keep using the beans of the passivated contexts, use the injection mode {}", injectionMode, InjectionMode.LAZY);
+            }
+            schedulePassivation();
+        }
+
+        metrics.pluginManagerInitialized(System.nanoTime() - start);
+    }
+
+    /**
+     * Stops the passivation of the idle application contexts (see {@link #setContextIdleTimeout(Duration)}).
+     */
+    @PreDestroy
+    public void destroy() {
+        if (passivationScheduler != null) {
+            passivationScheduler.shutdownNow();
+            passivationScheduler = null;
+        }
+    }
+
+    protected ExtensionsInjector createExtensionsInjector(AbstractAutowireCapableBeanFactory beanFactory) {
+        return new ExtensionsInjector(this, beanFactory, injectionMode);
+    }
+
+    /**
+     * Creates the application contexts and registers the extensions of the given plugins on a background thread
+     * (see {@link #setAsyncStartup(boolean)}).
+     */
+    private void startPluginsAsync(List<PluginWrapper> plugins) {
+        if (plugins.isEmpty()) {
+            return;
+        }
+
+        for (PluginWrapper plugin : plugins) {
+            pendingClassLoaders.add(plugin.getPluginClassLoader());
+            pluginsReadiness.put(plugin.getPluginId(), new CompletableFuture<>());
+        }
+        evictExtensionsCache();
+        deferEventsUntilHostRefreshed();
+
+        log.debug("Start {} plugins in background", plugins.size());
+        ExecutorService executor = Executors.newSingleThreadExecutor(runnable -> {
+            Thread thread = new Thread(runnable, "pf4j-spring-startup");
+            thread.setDaemon(true);
+
+            return thread;
+        });
+        for (PluginWrapper plugin : plugins) {
+            executor.execute(() -> readyPlugin(plugin, pluginsReadiness.get(plugin.getPluginId())));
+        }
+        // the thread ends after the last plugin
+        executor.shutdown();
+    }
+
+    private void readyPlugin(PluginWrapper plugin, CompletableFuture<PluginWrapper> readiness) {
+        try {
+            if (plugin.getPluginState() != PluginState.STARTED) {
+                throw new PluginRuntimeException("Plugin '{}' is not started", plugin.getPluginId());
+            }
+
+            ApplicationContext pluginApplicationContext = (plugin.getPlugin() instanceof SpringPlugin)
+                ? ((SpringPlugin) plugin.getPlugin()).getApplicationContext()
+                : null;
+            extensionsInjector.injectExtensions(plugin);
+            // a plugin stopped before this check may have been ejected (by injectOrEjectExtensions) before
+            // the injection, a plugin stopped after this check is ejected after the injection
+            if (plugin.getPluginState() != PluginState.STARTED) {
+                extensionsInjector.ejectExtensions(plugin.getPluginId());
+                throw new PluginRuntimeException("Plugin '{}' was stopped during its startup", plugin.getPluginId());
+            }
+            pendingClassLoaders.remove(plugin.getPluginClassLoader());
+            evictExtensionsCache();
+
+            if (pluginApplicationContext != null) {
+                publishWhenHostRefreshed(new PluginContextReadyEvent(this, plugin, pluginApplicationContext));
+            }
+            publishWhenHostRefreshed(new PluginExtensionsRegisteredEvent(this, plugin,
+                extensionsInjector.getExtensionBeanNames(plugin.getPluginId())));
+            log.debug("Plugin '{}' is ready", plugin.getPluginId());
+            readiness.complete(plugin);
+        } catch (Exception e) {
+            // the extensions of the plugin stay hidden
+            log.error("Cannot start plugin '{}' in background", plugin.getPluginId(), e);
+            readiness.completeExceptionally(e);
+        }
+    }
+
+    /**
+     * Holds the events of the asynchronous startup until the host application context is refreshed,
+     * if it's not yet (a refreshed context is running).
+     */
+    private void deferEventsUntilHostRefreshed() {
+        if (!(applicationContext instanceof ConfigurableApplicationContext) || ((ConfigurableApplicationContext) applicationContext).isRunning()) {
+            synchronized (deferredEvents) {
+                hostRefreshed = true;
+            }
+            return;
+        }
+
+        ((ConfigurableApplicationContext) applicationContext).addApplicationListener((ApplicationListener<ApplicationEvent>) event -> {
+            // the events of the plugin contexts are propagated to the host
+            if (event instanceof ContextRefreshedEvent && ((ContextRefreshedEvent) event).getApplicationContext() == applicationContext) {
+                publishDeferredEvents();
+            }
+        });
+    }
+
+    private void publishWhenHostRefreshed(ApplicationEvent event) {
+        synchronized (deferredEvents) {
+            if (!hostRefreshed) {
+                deferredEvents.add(event);
+                return;
+            }
+        }
+
+        applicationContext.publishEvent(event);
+    }
+
+    private void publishDeferredEvents() {
+        List<ApplicationEvent> events;
+        synchronized (deferredEvents) {
+            hostRefreshed = true;
+            events = new ArrayList<>(deferredEvents);
+            deferredEvents.clear();
+        }
+
+        log.debug("Publish {} events deferred until the host application context was refreshed", events.size());
+        for (ApplicationEvent event : events) {
+            applicationContext.publishEvent(event);
+        }
+    }
+
+    private void schedulePassivation() {
+        // an idle context is closed at most half of the timeout after it expired
+        long period = Math.max(contextIdleTimeout.toMillis() / 2, 1);
+        log.debug("Passivate the application contexts idle for {} ms", contextIdleTimeout.toMillis());
+        passivationScheduler = Executors.newSingleThreadScheduledExecutor(runnable -> {
+            Thread thread = new Thread(runnable, "pf4j-spring-passivation");
+            thread.setDaemon(true);
+
+            return thread;
+        });
+        passivationScheduler.scheduleWithFixedDelay(() -> {
+            try {
+                passivateIdleContexts(contextIdleTimeout);
+            } catch (Exception e) {
+                log.error("Cannot passivate the idle application contexts", e);
+            }
+        }, period, period, TimeUnit.MILLISECONDS);
+    }
+
+    /**
+     * Registers the {@code pluginExtensions} prototype bean, so a {@link PluginExtensions} can be injected
+     * in the host application context, unless a bean with the same name exists
+     * (for example registered before by a {@link PluginExtensionsRegistrar}).
+     */
+    private void registerPluginExtensionsBean(AbstractAutowireCapableBeanFactory beanFactory) {
+        if (!(beanFactory instanceof BeanDefinitionRegistry) || beanFactory.containsBean(PLUGIN_EXTENSIONS_BEAN_NAME)) {
+            return;
+        }
+
+        ((BeanDefinitionRegistry) beanFactory).registerBeanDefinition(PLUGIN_EXTENSIONS_BEAN_NAME,
+            PluginExtensionsRegistrar.createBeanDefinition(this));
+    }
+
+    private <T> List<ExtensionWrapper<T>> withoutPendingPlugins(List<ExtensionWrapper<T>> extensionsWrapper) {
+        if (pendingClassLoaders.isEmpty()) {
+            return extensionsWrapper;
+        }
+
+        return extensionsWrapper.stream()
+            .filter(extensionWrapper -> !pendingClassLoaders.contains(extensionWrapper.getDescriptor().extensionClass.getClassLoader()))
+            .collect(Collectors.toList());
+    }
+
+    private List<SpringPlugin> springPluginsOf(List<?> extensions) {
+        Set<SpringPlugin> springPlugins = new LinkedHashSet<>();
+        for (Object extension : extensions) {
+            PluginWrapper plugin = whichPlugin(extension.getClass());
+            if (plugin != null && plugin.getPlugin() instanceof SpringPlugin) {
+                springPlugins.add((SpringPlugin) plugin.getPlugin());
+            }
+        }
+
+        return new ArrayList<>(springPlugins);
+    }
+
+    private void evictExtensionsCache() {
+        extensionsVersion.incrementAndGet();
+        extensionsCache.clear();
+    }
+
+    private void evictCaches(PluginStateEvent event) {
+        evictExtensionsCache();
+
+        if (event.getPluginState().isStopped() || event.getPluginState().isUnloaded()) {
+            pendingClassLoaders.remove(event.getPlugin().getPluginClassLoader());
+        }
+
+        if (!event.getPluginState().isUnloaded()) {
+            return;
+        }
+
+        extensionIndexes.remove(event.getPlugin().getPluginClassLoader());
+        metadataReaders.remove(event.getPlugin().getPluginClassLoader());
+    }
+
+    private void injectOrEjectExtensions(PluginStateEvent event) {
+        PluginWrapper plugin = event.getPlugin();
+        if (event.getPluginState().isStarted()) {
+            extensionsInjector.injectExtensions(plugin);
+            pluginsReadiness.put(plugin.getPluginId(), CompletableFuture.completedFuture(plugin));
+        } else if (event.getOldState() == PluginState.STARTED) {
+            extensionsInjector.ejectExtensions(plugin.getPluginId());
+            pluginsReadiness.remove(plugin.getPluginId());
+        }
+    }
+
+    private static class ExtensionsSnapshot {
+
+        private final long version;
+        private final List<?> extensions;
+        private final List<SpringPlugin> springPlugins;
+
+        ExtensionsSnapshot(long version, List<?> extensions, List<SpringPlugin> springPlugins) {
+            this.version = version;
+            this.extensions = extensions;
+            this.springPlugins = springPlugins;
+        }
+
     }
 
 }
@@ -0,0 +1,103 @@
+/*
+ * Copyright (C) 2012-present the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.pf4j.spring;
+
+import org.springframework.context.ApplicationContext;
+
+/**
+ * Receives the measurements of the plugins lifecycle and of the extensions creation.
+ * All methods have an empty default implementation, so an implementation overrides only what it records.
+ * <p>
+ * Set an implementation with {@link SpringPluginManager#setMetrics(SpringPluginMetrics)}.
+ * A binding for Micrometer is available in the {@code pf4j-spring-micrometer} module.
+ * The methods are called (from any thread) on the hot paths, so an implementation must be thread safe and cheap.
+ */
+public interface SpringPluginMetrics {
+
+    /**
+     * Records nothing.
+     */
+    SpringPluginMetrics NONE = new SpringPluginMetrics() {};
+
+    /**
+     * Called when {@link SpringPluginManager#init()} completed.
+     */
+    default void pluginManagerInitialized(long durationNanos) {
+    }
+
+    /**
+     * Called when the application context of a {@link SpringPlugin} was created (and refreshed).
+     */
+    default void applicationContextCreated(String pluginId, ApplicationContext applicationContext, long durationNanos) {
+    }
+
+    /**
+     * Called after {@link #applicationContextCreated(String, ApplicationContext, long)} with the bytes of heap allocated
+     * to create the context (see {@link SpringPlugin#getContextAllocatedBytes()}), if the JVM measures them.
+     */
+    default void applicationContextAllocated(String pluginId, long allocatedBytes) {
+    }
+
+    /**
+     * Called when the idle application context of a {@link SpringPlugin} was closed (see {@link SpringPlugin#passivate()}).
+     */
+    default void applicationContextPassivated(String pluginId) {
+    }
+
+    /**
+     * Called when the extensions of a plugin were registered as beans by {@link ExtensionsInjector}.
+     *
+     * @param pluginId the plugin id, or {@code null} for the extensions that don't belong to a plugin
+     * @param extensionCount the number of extensions registered as beans (without the ones that already existed as beans)
+     */
+    default void extensionsInjected(String pluginId, int extensionCount, long durationNanos) {
+    }
+
+    /**
+     * Called when an extension was created by {@link SpringExtensionFactory}.
+     *
+     * @param withSpring {@code true} if the extension was created (and autowired) by an application context
+     */
+    default void extensionCreated(Class<?> extensionClass, boolean withSpring, long durationNanos) {
+    }
+
+    /**
+     * Called when {@link SingletonSpringExtensionFactory} returned an already created singleton.
+     */
+    default void singletonCacheHit(Class<?> extensionClass) {
+    }
+
+    /**
+     * Called when {@link SingletonSpringExtensionFactory} didn't find the singleton (the first request).
+     */
+    default void singletonCacheMiss(Class<?> extensionClass) {
+    }
+
+    /**
+     * Called when an extension was borrowed from {@link PooledSpringExtensionFactory}.
+     *
+     * @param reused {@code true} if an idle instance was reused, {@code false} if a new instance was created
+     */
+    default void extensionBorrowed(Class<?> extensionClass, boolean reused) {
+    }
+
+    /**
+     * Called when idle extensions were evicted from {@link PooledSpringExtensionFactory}.
+     */
+    default void idleExtensionsEvicted(Class<?> extensionClass, int count) {
+    }
+
+}
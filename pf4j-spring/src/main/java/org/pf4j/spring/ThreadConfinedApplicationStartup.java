@@ -0,0 +1,56 @@
+/*
+ * Copyright (C) 2012-present the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.pf4j.spring;
+
+import org.springframework.core.metrics.ApplicationStartup;
+import org.springframework.core.metrics.StartupStep;
+
+/**
+ * Shares an {@link ApplicationStartup} that is not thread safe (for example Spring's {@code FlightRecorderApplicationStartup},
+ * that keeps the current steps in an unsynchronized deque) with the threads of {@link SpringPluginManager}:
+ * only the steps started on the owner thread (the thread that created this instance) are recorded by the delegate,
+ * the steps started on the other threads are not recorded.
+ *
+ * @see SpringPluginManager#getApplicationStartup()
+ */
+class ThreadConfinedApplicationStartup implements ApplicationStartup {
+
+    private final ApplicationStartup delegate;
+    private final Thread owner;
+
+    ThreadConfinedApplicationStartup(ApplicationStartup delegate) {
+        this.delegate = delegate;
+        owner = Thread.currentThread();
+    }
+
+    ApplicationStartup getDelegate() {
+        return delegate;
+    }
+
+    @Override
+    public StartupStep start(String name) {
+        return (Thread.currentThread() == owner) ? delegate.start(name) : ApplicationStartup.DEFAULT.start(name);
+    }
+
+    /**
+     * Returns {@code true} if the given {@link ApplicationStartup} can start steps from several threads at once.
+     */
+    static boolean isThreadSafe(ApplicationStartup applicationStartup) {
+        return applicationStartup == ApplicationStartup.DEFAULT || applicationStartup instanceof TracingApplicationStartup
+            || applicationStartup instanceof ThreadConfinedApplicationStartup;
+    }
+
+}
@@ -0,0 +1,268 @@
+/*
+ * Copyright (C) 2012-present the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.pf4j.spring;
+
+import org.springframework.core.metrics.ApplicationStartup;
+import org.springframework.core.metrics.StartupStep;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.io.Writer;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Locale;
+import java.util.Queue;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicReference;
+import java.util.function.Supplier;
+
+/**
+ * An {@link ApplicationStartup} that records the ended steps (from any thread) and writes them
+ * in the <a href="https://docs.google.com/document/d/1CvAClvFfyA5R-PhYUmn5OOQtYMH4h6I0nSsKchNAySU">Trace Event Format</a>,
+ * that can be opened as a flame graph with {@code chrome://tracing}, <a href="https://ui.perfetto.dev">Perfetto</a>
+ * or <a href="https://www.speedscope.app">speedscope</a>.
+ * <p>
+ * Set it on the host application context before refresh. {@link SpringPluginManager} propagates it to its own steps
+ * ({@code pf4j.*}) and, via {@link SpringPlugin#getApplicationStartup()}, to the application contexts of the plugins:
+ * <pre>{@code
+ *     TracingApplicationStartup applicationStartup = new TracingApplicationStartup();
+ *     AnnotationConfigApplicationContext applicationContext = new AnnotationConfigApplicationContext();
+ *     applicationContext.setApplicationStartup(applicationStartup);
+ *     applicationContext.register(SpringConfiguration.class);
+ *     applicationContext.refresh();
+ *     applicationStartup.writeTrace(Paths.get("startup-trace.json"));
+ * }</pre>
+ * For JFR, Spring's {@code FlightRecorderApplicationStartup} can be used instead, but it's not thread safe:
+ * it records only the steps started on the thread that called {@link SpringPluginManager#init()}
+ * (see {@link SpringPluginManager#getApplicationStartup()}).
+ */
+public class TracingApplicationStartup implements ApplicationStartup {
+
+    private final long originNanos = System.nanoTime();
+    private final AtomicLong idGenerator = new AtomicLong();
+    private final Queue<TraceStep> endedSteps = new ConcurrentLinkedQueue<>();
+    /**
+     * The current (last started and not ended) step of each thread.
+     * A step keeps the holder of the thread that started it, so it can be ended on another thread.
+     */
+    private final ThreadLocal<AtomicReference<TraceStep>> currentSteps = ThreadLocal.withInitial(AtomicReference::new);
+
+    @Override
+    public StartupStep start(String name) {
+        AtomicReference<TraceStep> currentStep = currentSteps.get();
+        TraceStep step = new TraceStep(name, idGenerator.getAndIncrement(), notEnded(currentStep.get()), currentStep);
+        currentStep.set(step);
+
+        return step;
+    }
+
+    /**
+     * Returns the number of ended steps.
+     */
+    public int getStepCount() {
+        return endedSteps.size();
+    }
+
+    /**
+     * Discards the recorded steps.
+     */
+    public void clear() {
+        endedSteps.clear();
+    }
+
+    /**
+     * Writes the ended steps as a JSON array of complete ({@code "ph":"X"}) trace events, with the tags as arguments.
+     */
+    public void writeTrace(Writer writer) throws IOException {
+        writer.write("[");
+        Iterator<TraceStep> iterator = endedSteps.iterator();
+        while (iterator.hasNext()) {
+            TraceStep step = iterator.next();
+            writer.write("\n{\"name\":");
+            writeString(writer, step.name);
+            writer.write(",\"cat\":\"startup\",\"ph\":\"X\",\"pid\":1,\"tid\":");
+            writer.write(Long.toString(step.threadId));
+            writer.write(",\"ts\":");
+            writer.write(toMicros(step.startNanos - originNanos));
+            writer.write(",\"dur\":");
+            writer.write(toMicros(step.endNanos - step.startNanos));
+            writer.write(",\"args\":{\"id\":");
+            writer.write(Long.toString(step.id));
+            if (step.parent != null) {
+                writer.write(",\"parentId\":");
+                writer.write(Long.toString(step.parent.id));
+            }
+            writer.write(",\"thread\":");
+            writeString(writer, step.threadName);
+            for (StartupStep.Tag tag : step.tags) {
+                writer.write(",");
+                writeString(writer, tag.getKey());
+                writer.write(":");
+                writeString(writer, tag.getValue());
+            }
+            writer.write("}}");
+            if (iterator.hasNext()) {
+                writer.write(",");
+            }
+        }
+        writer.write("\n]\n");
+        writer.flush();
+    }
+
+    /**
+     * Writes the ended steps in a file (see {@link #writeTrace(Writer)}).
+     */
+    public void writeTrace(Path file) {
+        try (Writer writer = Files.newBufferedWriter(file, StandardCharsets.UTF_8)) {
+            writeTrace(writer);
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+
+    private static String toMicros(long nanos) {
+        return String.format(Locale.ROOT, "%d.%03d", nanos / 1000, nanos % 1000);
+    }
+
+    /**
+     * Returns the given step if it's not ended, else its nearest not ended ancestor.
+     */
+    private static TraceStep notEnded(TraceStep step) {
+        while (step != null && step.ended) {
+            step = step.parent;
+        }
+
+        return step;
+    }
+
+    private static void writeString(Writer writer, String value) throws IOException {
+        writer.write('"');
+        for (int i = 0; i < value.length(); i++) {
+            char c = value.charAt(i);
+            if (c == '"' || c == '\\') {
+                writer.write('\\');
+                writer.write(c);
+            } else if (c < 0x20) {
+                writer.write(String.format(Locale.ROOT, "\\u%04x", (int) c));
+            } else {
+                writer.write(c);
+            }
+        }
+        writer.write('"');
+    }
+
+    private class TraceStep implements StartupStep {
+
+        private final String name;
+        private final long id;
+        private final TraceStep parent;
+        private final AtomicReference<TraceStep> currentStep;
+        private final long threadId;
+        private final String threadName;
+        private final List<Tag> tags = new ArrayList<>();
+        private final long startNanos;
+        private volatile long endNanos;
+        private volatile boolean ended;
+
+        TraceStep(String name, long id, TraceStep parent, AtomicReference<TraceStep> currentStep) {
+            this.name = name;
+            this.id = id;
+            this.parent = parent;
+            this.currentStep = currentStep;
+            Thread thread = Thread.currentThread();
+            threadId = thread.getId();
+            threadName = thread.getName();
+            startNanos = System.nanoTime();
+        }
+
+        @Override
+        public String getName() {
+            return name;
+        }
+
+        @Override
+        public long getId() {
+            return id;
+        }
+
+        @Override
+        public Long getParentId() {
+            return (parent != null) ? parent.id : null;
+        }
+
+        @Override
+        public StartupStep tag(String key, String value) {
+            tags.add(new TraceTag(key, value));
+
+            return this;
+        }
+
+        @Override
+        public StartupStep tag(String key, Supplier<String> value) {
+            return tag(key, value.get());
+        }
+
+        @Override
+        public Tags getTags() {
+            return tags::iterator;
+        }
+
+        @Override
+        public void end() {
+            endNanos = System.nanoTime();
+            ended = true;
+            // on the thread that started the step (whatever the thread that ends it), the current step
+            // becomes the nearest not ended ancestor
+            TraceStep current = currentStep.get();
+            while (current != null && current.ended) {
+                TraceStep next = notEnded(current.parent);
+                if (currentStep.compareAndSet(current, next)) {
+                    break;
+                }
+                current = currentStep.get();
+            }
+            endedSteps.add(this);
+        }
+    }
+
+    private static class TraceTag implements StartupStep.Tag {
+
+        private final String key;
+        private final String value;
+
+        TraceTag(String key, String value) {
+            this.key = key;
+            this.value = String.valueOf(value);
+        }
+
+        @Override
+        public String getKey() {
+            return key;
+        }
+
+        @Override
+        public String getValue() {
+            return value;
+        }
+
+    }
+
+}
@@ -0,0 +1,109 @@
+/*
+ * Copyright (C) 2012-present the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.pf4j.spring;
+
+import org.junit.Test;
+import org.pf4j.DefaultPluginDescriptor;
+import org.pf4j.DefaultPluginManager;
+import org.pf4j.PluginDependency;
+import org.pf4j.PluginManager;
+import org.pf4j.PluginRuntimeException;
+import org.pf4j.PluginWrapper;
+import org.springframework.context.ApplicationContext;
+import org.springframework.context.support.GenericApplicationContext;
+
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.CopyOnWriteArrayList;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+public class ApplicationContextsBootstrapTest {
+
+    private final PluginManager pluginManager = new DefaultPluginManager();
+    private final List<String> steps = new CopyOnWriteArrayList<>();
+
+    @Test(timeout = 10_000)
+    public void contextOfADependentPluginIsCreatedAfterTheContextOfItsDependency() {
+        // the dependency is the slowest plugin, so a dependent created too soon would start before its end
+        PluginWrapper dependency = plugin("dependency", 200, null);
+        PluginWrapper dependent = plugin("dependent", 0, null, "dependency");
+        PluginWrapper independent = plugin("independent", 0, null);
+
+        new ApplicationContextsBootstrap(3).bootstrap(Arrays.asList(dependency, dependent, independent));
+
+        assertTrue(steps.indexOf("end dependency") < steps.indexOf("start dependent"));
+        // the independent plugin doesn't wait for the slow one
+        assertTrue(steps.indexOf("end independent") < steps.indexOf("end dependency"));
+        assertEquals(6, steps.size());
+    }
+
+    @Test(timeout = 10_000)
+    public void firstFailureInTheStartOrderIsReported() {
+        // the first plugin fails last
+        RuntimeException slowFailure = new IllegalStateException("slow");
+        PluginWrapper slow = plugin("slow", 200, slowFailure);
+        PluginWrapper fast = plugin("fast", 0, new IllegalStateException("fast"));
+        PluginWrapper dependent = plugin("dependent", 0, null, "fast");
+        PluginWrapper independent = plugin("independent", 0, null);
+
+        try {
+            new ApplicationContextsBootstrap(4).bootstrap(Arrays.asList(slow, fast, dependent, independent));
+            fail("The failure of a context is not reported");
+        } catch (PluginRuntimeException e) {
+            assertTrue(e.getMessage().contains("'slow'"));
+            assertSame(slowFailure, e.getCause());
+        }
+
+        // the plugin that depends on a failed one is not started, the others are
+        assertFalse(steps.contains("start dependent"));
+        assertTrue(steps.contains("end independent"));
+    }
+
+    private PluginWrapper plugin(String pluginId, long creationMillis, RuntimeException failure, String... dependencies) {
+        DefaultPluginDescriptor descriptor = new DefaultPluginDescriptor(pluginId, null, null, "1.0.0", null, null, null);
+        for (String dependency : dependencies) {
+            descriptor.addDependency(new PluginDependency(dependency));
+        }
+        PluginWrapper wrapper = new PluginWrapper(pluginManager, descriptor, null, getClass().getClassLoader());
+        wrapper.setPluginFactory(pluginWrapper -> new SpringPlugin(pluginWrapper) {
+
+            @Override
+            protected ApplicationContext createApplicationContext() {
+                steps.add("start " + pluginId);
+                try {
+                    Thread.sleep(creationMillis);
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                }
+                if (failure != null) {
+                    throw failure;
+                }
+                steps.add("end " + pluginId);
+
+                return new GenericApplicationContext();
+            }
+
+        });
+
+        return wrapper;
+    }
+
+}
@@ -0,0 +1,222 @@
+/*
+ * Copyright (C) 2012-present the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.pf4j.spring;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+import org.pf4j.test.plugin.OtherTestExtension;
+import org.pf4j.test.plugin.SpecialTestExtension;
+import org.pf4j.test.plugin.TestExtension;
+import org.springframework.beans.factory.config.BeanPostProcessor;
+import org.springframework.beans.factory.support.AbstractAutowireCapableBeanFactory;
+import org.springframework.context.annotation.AnnotationConfigApplicationContext;
+
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.LinkedHashSet;
+import java.util.Set;
+import java.util.concurrent.CyclicBarrier;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicReference;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+public class ExtensionsInjectorTest {
+
+    @Rule
+    public TemporaryFolder pluginsRoot = new TemporaryFolder();
+
+    private AnnotationConfigApplicationContext applicationContext;
+
+    @Before
+    public void setUp() {
+        applicationContext = new AnnotationConfigApplicationContext();
+        applicationContext.refresh();
+    }
+
+    @After
+    public void tearDown() {
+        applicationContext.close();
+    }
+
+    @Test
+    public void extensionOfASuperclassOfARegisteredExtensionIsNotRegistered() {
+        TestPlugins.create(pluginsRoot.getRoot().toPath(), "plugin1", SpecialTestExtension.class, TestExtension.class);
+
+        for (InjectionMode injectionMode : InjectionMode.values()) {
+            SpringPluginManager pluginManager = new SpringPluginManager(pluginsRoot.getRoot().toPath()) {
+
+                @Override
+                public Set<String> getExtensionClassNames(String pluginId) {
+                    // the subclass is registered first (PF4J returns the names in no particular order)
+                    return (pluginId != null)
+                        ? new LinkedHashSet<>(Arrays.asList(SpecialTestExtension.class.getName(), TestExtension.class.getName()))
+                        : super.getExtensionClassNames(pluginId);
+                }
+
+            };
+            init(pluginManager, injectionMode);
+
+            assertTrue(injectionMode.name(), applicationContext.containsBean(SpecialTestExtension.class.getName()));
+            assertFalse(injectionMode.name(), applicationContext.containsBean(TestExtension.class.getName()));
+
+            pluginManager.stopPlugins();
+            pluginManager.unloadPlugins();
+        }
+    }
+
+    @Test
+    public void parallelModeRegistersTheSameBeansAsEagerMode() {
+        TestPlugins.create(pluginsRoot.getRoot().toPath(), "plugin1", TestExtension.class);
+        TestPlugins.create(pluginsRoot.getRoot().toPath(), "plugin2", SpecialTestExtension.class);
+        TestPlugins.create(pluginsRoot.getRoot().toPath(), "plugin3", OtherTestExtension.class);
+        Set<String> expectedBeanNames = new HashSet<>(Arrays.asList(TestExtension.class.getName(),
+            SpecialTestExtension.class.getName(), OtherTestExtension.class.getName()));
+
+        for (InjectionMode injectionMode : new InjectionMode[] { InjectionMode.EAGER, InjectionMode.PARALLEL }) {
+            SpringPluginManager pluginManager = new SpringPluginManager(pluginsRoot.getRoot().toPath());
+            init(pluginManager, injectionMode);
+
+            Set<String> beanNames = new HashSet<>(Arrays.asList(applicationContext.getBeanNamesForType(TestExtensionPoint.class)));
+            assertEquals(injectionMode.name(), expectedBeanNames, beanNames);
+            assertEquals(injectionMode.name(), 3, applicationContext.getBeansOfType(TestExtensionPoint.class).size());
+
+            pluginManager.stopPlugins();
+            pluginManager.unloadPlugins();
+            assertEquals(injectionMode.name(), 0, applicationContext.getBeanNamesForType(TestExtensionPoint.class).length);
+        }
+    }
+
+    @Test
+    public void stoppedPluginExtensionsAreEjectedAndRegisteredAgainOnRestart() {
+        // two plugins contribute extensions of the same extension point
+        TestPlugins.create(pluginsRoot.getRoot().toPath(), "plugin1", OtherTestExtension.class);
+        TestPlugins.create(pluginsRoot.getRoot().toPath(), "plugin2", SpecialTestExtension.class);
+        Set<String> plugin1BeanNames = Collections.singleton(OtherTestExtension.class.getName());
+        Set<String> plugin2BeanNames = Collections.singleton(SpecialTestExtension.class.getName());
+
+        for (InjectionMode injectionMode : InjectionMode.values()) {
+            AtomicReference<ExtensionsInjector> extensionsInjector = new AtomicReference<>();
+            SpringPluginManager pluginManager = new SpringPluginManager(pluginsRoot.getRoot().toPath()) {
+
+                @Override
+                protected ExtensionsInjector createExtensionsInjector(AbstractAutowireCapableBeanFactory beanFactory) {
+                    extensionsInjector.set(super.createExtensionsInjector(beanFactory));
+                    return extensionsInjector.get();
+                }
+
+            };
+            init(pluginManager, injectionMode);
+            assertEquals(injectionMode.name(), plugin1BeanNames, extensionsInjector.get().getExtensionBeanNames("plugin1"));
+            assertEquals(injectionMode.name(), plugin2BeanNames, extensionsInjector.get().getExtensionBeanNames("plugin2"));
+
+            pluginManager.stopPlugin("plugin1");
+            assertFalse(injectionMode.name(), applicationContext.containsBean(OtherTestExtension.class.getName()));
+            assertTrue(injectionMode.name(), extensionsInjector.get().getExtensionBeanNames("plugin1").isEmpty());
+            // the extensions of the other plugin stay registered
+            assertEquals(injectionMode.name(), plugin2BeanNames, extensionsInjector.get().getExtensionBeanNames("plugin2"));
+            assertEquals(injectionMode.name(), 1, applicationContext.getBeansOfType(TestExtensionPoint.class).size());
+
+            pluginManager.startPlugin("plugin1");
+            assertTrue(injectionMode.name(), applicationContext.containsBean(OtherTestExtension.class.getName()));
+            assertEquals(injectionMode.name(), plugin1BeanNames, extensionsInjector.get().getExtensionBeanNames("plugin1"));
+            assertEquals(injectionMode.name(), plugin2BeanNames, extensionsInjector.get().getExtensionBeanNames("plugin2"));
+            assertEquals(injectionMode.name(), 2, applicationContext.getBeansOfType(TestExtensionPoint.class).size());
+
+            pluginManager.stopPlugins();
+            pluginManager.unloadPlugins();
+            assertEquals(injectionMode.name(), 0, applicationContext.getBeanNamesForType(TestExtensionPoint.class).length);
+        }
+    }
+
+    @Test(timeout = 30_000)
+    public void parallelModeLoadsTheExtensionsOfAllPluginsConcurrently() {
+        // more plugins than processors, the task of each plugin waits for the tasks of the others
+        int plugins = Runtime.getRuntime().availableProcessors() + 1;
+        for (int i = 1; i <= plugins; i++) {
+            TestPlugins.create(pluginsRoot.getRoot().toPath(), "plugin" + i, new Class<?>[0]);
+        }
+        CyclicBarrier barrier = new CyclicBarrier(plugins);
+        Thread initThread = Thread.currentThread();
+
+        SpringPluginManager pluginManager = new SpringPluginManager(pluginsRoot.getRoot().toPath()) {
+
+            @Override
+            public Set<String> getExtensionClassNames(String pluginId) {
+                if (pluginId != null && Thread.currentThread() != initThread) {
+                    try {
+                        barrier.await(10, TimeUnit.SECONDS);
+                    } catch (Exception e) {
+                        throw new IllegalStateException("The extensions of the plugins are not loaded concurrently", e);
+                    }
+                }
+                return super.getExtensionClassNames(pluginId);
+            }
+
+        };
+        init(pluginManager, InjectionMode.PARALLEL);
+
+        assertEquals(plugins, pluginManager.getStartedPlugins().size());
+        assertEquals(0, barrier.getNumberWaiting());
+        assertFalse(barrier.isBroken());
+
+        pluginManager.stopPlugins();
+        pluginManager.unloadPlugins();
+    }
+
+    @Test
+    public void createdExtensionsAreNotPostProcessed() {
+        TestPlugins.create(pluginsRoot.getRoot().toPath(), "plugin1", TestExtension.class);
+        Set<String> postProcessedBeanNames = Collections.synchronizedSet(new HashSet<>());
+        applicationContext.close();
+        applicationContext = new AnnotationConfigApplicationContext();
+        applicationContext.getBeanFactory().addBeanPostProcessor(new BeanPostProcessor() {
+
+            @Override
+            public Object postProcessAfterInitialization(Object bean, String beanName) {
+                postProcessedBeanNames.add(beanName);
+                return bean;
+            }
+
+        });
+        applicationContext.refresh();
+
+        for (InjectionMode injectionMode : new InjectionMode[] { InjectionMode.EAGER, InjectionMode.PARALLEL }) {
+            SpringPluginManager pluginManager = new SpringPluginManager(pluginsRoot.getRoot().toPath());
+            init(pluginManager, injectionMode);
+
+            assertEquals(injectionMode.name(), TestExtension.class.getName(),
+                applicationContext.getBean(TestExtension.class.getName()).getClass().getName());
+            assertFalse(injectionMode.name(), postProcessedBeanNames.contains(TestExtension.class.getName()));
+
+            pluginManager.stopPlugins();
+            pluginManager.unloadPlugins();
+        }
+    }
+
+    private void init(SpringPluginManager pluginManager, InjectionMode injectionMode) {
+        pluginManager.setApplicationContext(applicationContext);
+        pluginManager.setInjectionMode(injectionMode);
+        pluginManager.init();
+    }
+
+}
@@ -0,0 +1,165 @@
+/*
+ * Copyright (C) 2012-present the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.pf4j.spring;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+import org.pf4j.test.plugin.FailingTestExtension;
+import org.pf4j.test.plugin.OtherTestExtension;
+
+import java.lang.reflect.InvocationTargetException;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNotSame;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+public class InstantiationPlanTest {
+
+    @Rule
+    public TemporaryFolder pluginsRoot = new TemporaryFolder();
+
+    private SpringPluginManager pluginManager;
+
+    @Before
+    public void setUp() {
+        TestPlugins.create(pluginsRoot.getRoot().toPath(), "plugin1", OtherTestExtension.class);
+
+        pluginManager = new SpringPluginManager(pluginsRoot.getRoot().toPath());
+        pluginManager.loadPlugins();
+    }
+
+    @After
+    public void tearDown() {
+        pluginManager.unloadPlugins();
+    }
+
+    @Test
+    public void noArgConstructorIsCalledWithAGeneratedSupplier() throws Exception {
+        InstantiationPlan plan = InstantiationPlan.of(NoArgExtension.class);
+
+        assertEquals(InstantiationPlan.Strategy.SUPPLIER, plan.getStrategy());
+        assertSame(plan, InstantiationPlan.of(NoArgExtension.class));
+        assertEquals(NoArgExtension.class, plan.newInstance().getClass());
+        assertNotSame(plan.newInstance(), plan.newInstance());
+    }
+
+    @Test
+    public void constructorWithParametersIsCalledWithAMethodHandle() throws Exception {
+        InstantiationPlan plan = InstantiationPlan.of(ArgExtension.class);
+
+        assertEquals(InstantiationPlan.Strategy.METHOD_HANDLE, plan.getStrategy());
+        // the shortest public constructor, with 'null' for its parameter
+        assertEquals(1, plan.getConstructor().getParameterCount());
+        assertNull(((ArgExtension) plan.newInstance()).value);
+    }
+
+    @Test
+    public void classOfAPluginIsCreatedWithAMethodHandle() throws Exception {
+        // the class of a plugin is in another (unnamed) module, so no supplier can be generated for it
+        Class<?> extensionClass = pluginClass(OtherTestExtension.class);
+        InstantiationPlan plan = InstantiationPlan.of(extensionClass);
+
+        assertEquals(InstantiationPlan.Strategy.METHOD_HANDLE, plan.getStrategy());
+        assertEquals(extensionClass, plan.newInstance().getClass());
+    }
+
+    @Test
+    public void constructorWithAPrimitiveParameterIsCalledWithReflection() throws Exception {
+        InstantiationPlan plan = InstantiationPlan.of(PrimitiveArgExtension.class);
+
+        assertEquals(InstantiationPlan.Strategy.REFLECTION, plan.getStrategy());
+        try {
+            plan.newInstance();
+            fail("A primitive parameter is given 'null'");
+        } catch (IllegalArgumentException e) {
+            // as Constructor.newInstance
+        }
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void classWithoutPublicConstructorHasNoPlan() {
+        InstantiationPlan.of(PrivateExtension.class);
+    }
+
+    @Test
+    public void exceptionOfTheConstructorIsWrapped() throws Exception {
+        assertConstructorExceptionIsWrapped(InstantiationPlan.of(FailingExtension.class), InstantiationPlan.Strategy.SUPPLIER);
+        assertConstructorExceptionIsWrapped(InstantiationPlan.of(pluginClass(FailingTestExtension.class)), InstantiationPlan.Strategy.METHOD_HANDLE);
+    }
+
+    private void assertConstructorExceptionIsWrapped(InstantiationPlan plan, InstantiationPlan.Strategy strategy) throws Exception {
+        assertEquals(strategy, plan.getStrategy());
+        try {
+            plan.newInstance();
+            fail("The exception of the constructor is not thrown");
+        } catch (InvocationTargetException e) {
+            assertTrue(strategy.name(), e.getCause() instanceof IllegalStateException);
+        }
+    }
+
+    private Class<?> pluginClass(Class<?> testClass) throws ClassNotFoundException {
+        Class<?> pluginClass = pluginManager.getPluginClassLoader("plugin1").loadClass(testClass.getName());
+        assertNotSame(testClass, pluginClass);
+
+        return pluginClass;
+    }
+
+    public static class NoArgExtension {
+    }
+
+    public static class ArgExtension {
+
+        final String value;
+
+        public ArgExtension(String value) {
+            this.value = value;
+        }
+
+        public ArgExtension(String value, Object other) {
+            this(value);
+        }
+
+    }
+
+    public static class PrimitiveArgExtension {
+
+        public PrimitiveArgExtension(int value) {
+        }
+
+    }
+
+    public static class PrivateExtension {
+
+        private PrivateExtension() {
+        }
+
+    }
+
+    public static class FailingExtension {
+
+        public FailingExtension() {
+            throw new IllegalStateException("Cannot create the extension");
+        }
+
+    }
+
+}
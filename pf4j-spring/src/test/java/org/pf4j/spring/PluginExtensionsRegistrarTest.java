@@ -0,0 +1,82 @@
+/*
+ * Copyright (C) 2012-present the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.pf4j.spring;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+import org.pf4j.test.plugin.OtherTestExtension;
+import org.springframework.context.annotation.AnnotationConfigApplicationContext;
+
+import java.util.Collections;
+import java.util.stream.Collectors;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+public class PluginExtensionsRegistrarTest {
+
+    @Rule
+    public TemporaryFolder pluginsRoot = new TemporaryFolder();
+
+    private AnnotationConfigApplicationContext applicationContext;
+
+    @Before
+    public void setUp() {
+        TestPlugins.create(pluginsRoot.getRoot().toPath(), "plugin1", OtherTestExtension.class);
+        applicationContext = new AnnotationConfigApplicationContext();
+    }
+
+    @After
+    public void tearDown() {
+        applicationContext.close();
+    }
+
+    @Test
+    public void pluginExtensionsIsInjectedInABeanCreatedBeforeThePluginManager() {
+        applicationContext.registerBean(PluginExtensionsRegistrar.class);
+        // the consumer doesn't depend on the plugin manager and it's instantiated first
+        applicationContext.registerBean(ExtensionsConsumer.class);
+        applicationContext.registerBean("pluginManager", SpringPluginManager.class, () -> new SpringPluginManager(pluginsRoot.getRoot().toPath()));
+        applicationContext.refresh();
+
+        PluginExtensions<TestExtensionPoint> extensions = applicationContext.getBean(ExtensionsConsumer.class).extensions;
+        assertEquals(TestExtensionPoint.class, extensions.getType());
+        assertEquals(Collections.singletonList(OtherTestExtension.class.getName()),
+            extensions.stream().map(extension -> extension.getClass().getName()).collect(Collectors.toList()));
+    }
+
+    @Test
+    public void pluginManagerRegistersThePluginExtensionsBeanWithoutTheRegistrar() {
+        applicationContext.registerBean("pluginManager", SpringPluginManager.class, () -> new SpringPluginManager(pluginsRoot.getRoot().toPath()));
+        applicationContext.refresh();
+
+        assertTrue(applicationContext.containsBeanDefinition(SpringPluginManager.PLUGIN_EXTENSIONS_BEAN_NAME));
+    }
+
+    public static class ExtensionsConsumer {
+
+        private final PluginExtensions<TestExtensionPoint> extensions;
+
+        public ExtensionsConsumer(PluginExtensions<TestExtensionPoint> extensions) {
+            this.extensions = extensions;
+        }
+
+    }
+
+}
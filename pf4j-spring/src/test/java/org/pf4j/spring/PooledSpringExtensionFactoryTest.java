@@ -0,0 +1,179 @@
+/*
+ * Copyright (C) 2012-present the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.pf4j.spring;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+import org.pf4j.test.plugin.OtherTestExtension;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CyclicBarrier;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+public class PooledSpringExtensionFactoryTest {
+
+    private static final int THREADS = 8;
+
+    @Rule
+    public TemporaryFolder pluginsRoot = new TemporaryFolder();
+
+    private SpringPluginManager pluginManager;
+    private ExecutorService executor;
+
+    @Before
+    public void setUp() {
+        pluginManager = new SpringPluginManager(pluginsRoot.getRoot().toPath());
+        executor = Executors.newFixedThreadPool(THREADS);
+    }
+
+    @After
+    public void tearDown() {
+        executor.shutdownNow();
+    }
+
+    @Test
+    public void releasedInstanceIsReused() {
+        PooledSpringExtensionFactory extensionFactory = new PooledSpringExtensionFactory(pluginManager);
+        PooledExtension extension = extensionFactory.borrow(PooledExtension.class);
+        extensionFactory.release(extension);
+
+        assertSame(extension, extensionFactory.borrow(PooledExtension.class));
+        assertEquals(1, extensionFactory.getPoolStats(PooledExtension.class).getActive());
+    }
+
+    @Test(expected = IllegalStateException.class)
+    public void doubleReleaseIsRejected() {
+        PooledSpringExtensionFactory extensionFactory = new PooledSpringExtensionFactory(pluginManager);
+        PooledExtension extension = extensionFactory.borrow(PooledExtension.class);
+        extensionFactory.release(extension);
+
+        extensionFactory.release(extension);
+    }
+
+    @Test(expected = IllegalStateException.class)
+    public void releaseOfAnInstanceNotBorrowedIsRejected() {
+        PooledSpringExtensionFactory extensionFactory = new PooledSpringExtensionFactory(pluginManager);
+
+        extensionFactory.release(new PooledExtension());
+    }
+
+    @Test
+    public void borrowAfterTheStopOfThePluginDoesntKeepAPool() throws Exception {
+        // as a borrow concurrent with the stop, that adds the pool after the eviction of the pools of the plugin
+        TestPlugins.create(pluginsRoot.getRoot().toPath(), "plugin1", OtherTestExtension.class);
+        PooledSpringExtensionFactory extensionFactory = new PooledSpringExtensionFactory(pluginManager, false,
+            PooledSpringExtensionFactory.DEFAULT_MAX_SIZE, PooledSpringExtensionFactory.DEFAULT_MAX_IDLE_TIME);
+        pluginManager.loadPlugins();
+        pluginManager.startPlugins();
+        Class<?> extensionClass = pluginManager.getPluginClassLoader("plugin1").loadClass(OtherTestExtension.class.getName());
+
+        pluginManager.stopPlugin("plugin1");
+        try {
+            extensionFactory.borrow(extensionClass);
+            fail("An extension of a stopped plugin is borrowed");
+        } catch (IllegalStateException e) {
+            // the pool is discarded
+        }
+        assertEquals(0, extensionFactory.getPoolStats(extensionClass).getBorrowed());
+
+        pluginManager.startPlugin("plugin1");
+        extensionFactory.release(extensionFactory.borrow(extensionClass));
+        assertEquals(1, extensionFactory.getPoolStats(extensionClass).getIdle());
+    }
+
+    @Test
+    public void borrowFailsAfterMaxWaitWhenMaxActiveInstancesAreBorrowed() {
+        PooledSpringExtensionFactory extensionFactory = createExtensionFactory(2, Duration.ofMillis(50));
+        extensionFactory.borrow(PooledExtension.class);
+        extensionFactory.borrow(PooledExtension.class);
+
+        long start = System.nanoTime();
+        try {
+            extensionFactory.borrow(PooledExtension.class);
+            fail("The borrow should fail");
+        } catch (IllegalStateException e) {
+            assertTrue(System.nanoTime() - start >= TimeUnit.MILLISECONDS.toNanos(50));
+        }
+        assertEquals(2, extensionFactory.getPoolStats(PooledExtension.class).getActive());
+    }
+
+    @Test
+    public void borrowWaitsForARelease() throws Exception {
+        PooledSpringExtensionFactory extensionFactory = createExtensionFactory(1, Duration.ofSeconds(10));
+        PooledExtension extension = extensionFactory.borrow(PooledExtension.class);
+
+        Future<PooledExtension> borrow = executor.submit(() -> extensionFactory.borrow(PooledExtension.class));
+        Thread.sleep(100);
+        assertFalse(borrow.isDone());
+
+        extensionFactory.release(extension);
+        assertSame(extension, borrow.get(10, TimeUnit.SECONDS));
+    }
+
+    @Test
+    public void concurrentBorrowsDontExceedMaxActive() throws Exception {
+        PooledSpringExtensionFactory extensionFactory = createExtensionFactory(2, Duration.ofSeconds(10));
+        AtomicInteger borrowed = new AtomicInteger();
+        AtomicInteger maxBorrowed = new AtomicInteger();
+        CyclicBarrier barrier = new CyclicBarrier(THREADS);
+        List<Future<?>> futures = new ArrayList<>();
+        for (int i = 0; i < THREADS; i++) {
+            futures.add(executor.submit(() -> {
+                barrier.await();
+                for (int j = 0; j < 100; j++) {
+                    PooledExtension extension = extensionFactory.borrow(PooledExtension.class);
+                    maxBorrowed.accumulateAndGet(borrowed.incrementAndGet(), Math::max);
+                    Thread.yield();
+                    borrowed.decrementAndGet();
+                    extensionFactory.release(extension);
+                }
+                return null;
+            }));
+        }
+        for (Future<?> future : futures) {
+            future.get(30, TimeUnit.SECONDS);
+        }
+
+        assertTrue(maxBorrowed.get() <= 2);
+        assertEquals(0, extensionFactory.getPoolStats(PooledExtension.class).getActive());
+        assertTrue(extensionFactory.getPoolStats(PooledExtension.class).getCreated() <= 2);
+    }
+
+    private PooledSpringExtensionFactory createExtensionFactory(int maxActive, Duration maxWait) {
+        return new PooledSpringExtensionFactory(pluginManager, true, PooledSpringExtensionFactory.DEFAULT_MAX_SIZE,
+            PooledSpringExtensionFactory.DEFAULT_MAX_IDLE_TIME, maxActive, maxWait);
+    }
+
+    public static class PooledExtension {
+
+    }
+
+}
@@ -0,0 +1,146 @@
+/*
+ * Copyright (C) 2012-present the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.pf4j.spring;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+import org.pf4j.ExtensionFactory;
+import org.pf4j.test.plugin.PrototypeTestExtension;
+import org.springframework.beans.factory.config.BeanPostProcessor;
+import org.springframework.beans.factory.support.DefaultListableBeanFactory;
+import org.springframework.context.ConfigurableApplicationContext;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.IdentityHashMap;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.CyclicBarrier;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNotSame;
+import static org.junit.Assert.assertTrue;
+
+public class PrototypeSpringExtensionFactoryTest {
+
+    private static final int THREADS = 8;
+
+    @Rule
+    public TemporaryFolder pluginsRoot = new TemporaryFolder();
+
+    private SpringPluginManager pluginManager;
+    private ExtensionFactory extensionFactory;
+    private Class<?> extensionClass;
+    private DefaultListableBeanFactory pluginBeanFactory;
+
+    @Before
+    public void setUp() throws Exception {
+        TestPlugins.create(pluginsRoot.getRoot().toPath(), "plugin1", PrototypeTestExtension.class);
+
+        pluginManager = new SpringPluginManager(pluginsRoot.getRoot().toPath()) {
+
+            @Override
+            protected ExtensionFactory createExtensionFactory() {
+                return new PrototypeSpringExtensionFactory(this);
+            }
+
+        };
+        pluginManager.loadPlugins();
+        pluginManager.startPlugins();
+        extensionFactory = pluginManager.getExtensionFactory();
+        // the class of the plugin, not the one of the application class loader
+        extensionClass = pluginManager.getPluginClassLoader("plugin1").loadClass(PrototypeTestExtension.class.getName());
+        SpringPlugin plugin = (SpringPlugin) pluginManager.getPlugin("plugin1").getPlugin();
+        pluginBeanFactory = (DefaultListableBeanFactory) ((ConfigurableApplicationContext) plugin.getApplicationContext()).getBeanFactory();
+        // a second registration of the bean definition fails
+        pluginBeanFactory.setAllowBeanDefinitionOverriding(false);
+    }
+
+    @After
+    public void tearDown() {
+        pluginManager.stopPlugins();
+        pluginManager.unloadPlugins();
+    }
+
+    @Test
+    public void createReturnsANewInstanceOnEachCall() {
+        TestExtensionPoint extension = (TestExtensionPoint) extensionFactory.create(extensionClass);
+        TestExtensionPoint otherExtension = (TestExtensionPoint) extensionFactory.create(extensionClass);
+
+        assertNotSame(extension, otherExtension);
+        // both are autowired with the beans of the plugin
+        assertEquals(extension.getMessage(), otherExtension.getMessage());
+    }
+
+    @Test
+    public void beanDefinitionIsRegisteredOnce() throws Exception {
+        String beanName = extensionClass.getName() + PrototypeSpringExtensionFactory.BEAN_NAME_SUFFIX;
+        int beanDefinitionCount = pluginBeanFactory.getBeanDefinitionCount();
+
+        ExecutorService executor = Executors.newFixedThreadPool(THREADS);
+        try {
+            CyclicBarrier barrier = new CyclicBarrier(THREADS);
+            List<Future<Object>> futures = new ArrayList<>();
+            for (int i = 0; i < THREADS; i++) {
+                futures.add(executor.submit(() -> {
+                    barrier.await();
+                    return extensionFactory.create(extensionClass);
+                }));
+            }
+            Set<Object> extensions = Collections.newSetFromMap(new IdentityHashMap<>());
+            for (Future<Object> future : futures) {
+                extensions.add(future.get());
+            }
+            assertEquals(THREADS, extensions.size());
+        } finally {
+            executor.shutdownNow();
+        }
+        extensionFactory.create(extensionClass);
+
+        assertEquals(beanDefinitionCount + 1, pluginBeanFactory.getBeanDefinitionCount());
+        assertTrue(pluginBeanFactory.containsBeanDefinition(beanName));
+        // the definition is not a candidate for the injection points of the plugin beans
+        assertFalse(pluginBeanFactory.getBeanDefinition(beanName).isAutowireCandidate());
+    }
+
+    @Test
+    public void extensionGoesThroughTheBeanLifecycle() throws Exception {
+        Set<String> postProcessedBeanNames = Collections.synchronizedSet(new HashSet<>());
+        pluginBeanFactory.addBeanPostProcessor(new BeanPostProcessor() {
+
+            @Override
+            public Object postProcessAfterInitialization(Object bean, String beanName) {
+                postProcessedBeanNames.add(beanName);
+                return bean;
+            }
+
+        });
+
+        Object extension = extensionFactory.create(extensionClass);
+
+        assertTrue(postProcessedBeanNames.contains(extensionClass.getName() + PrototypeSpringExtensionFactory.BEAN_NAME_SUFFIX));
+        assertTrue((Boolean) extensionClass.getMethod("isInitialized").invoke(extension));
+    }
+
+}
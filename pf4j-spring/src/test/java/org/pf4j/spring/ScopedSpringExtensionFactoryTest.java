@@ -0,0 +1,117 @@
+/*
+ * Copyright (C) 2012-present the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.pf4j.spring;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+import org.pf4j.ExtensionFactory;
+import org.pf4j.test.plugin.ThreadScopedTestExtension;
+
+import java.lang.ref.WeakReference;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.Assert.assertNotSame;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertSame;
+
+public class ScopedSpringExtensionFactoryTest {
+
+    @Rule
+    public TemporaryFolder pluginsRoot = new TemporaryFolder();
+
+    private SpringPluginManager pluginManager;
+    private ExecutorService executor;
+
+    @Before
+    public void setUp() {
+        TestPlugins.create(pluginsRoot.getRoot().toPath(), "plugin1", ThreadScopedTestExtension.class);
+
+        pluginManager = new SpringPluginManager(pluginsRoot.getRoot().toPath()) {
+
+            @Override
+            protected ExtensionFactory createExtensionFactory() {
+                return new ScopedSpringExtensionFactory(this);
+            }
+
+        };
+        pluginManager.loadPlugins();
+        pluginManager.startPlugins();
+        executor = Executors.newSingleThreadExecutor();
+    }
+
+    @After
+    public void tearDown() {
+        executor.shutdownNow();
+        pluginManager.stopPlugins();
+    }
+
+    @Test
+    public void threadScopedExtensionIsCreatedPerThread() throws Exception {
+        TestExtensionPoint extension = executor.submit(this::getExtension).get();
+
+        assertSame(extension, executor.submit(this::getExtension).get());
+        assertNotSame(extension, getExtension());
+    }
+
+    @Test
+    public void stopReleasesTheThreadScopedExtensionsOfAllThreads() throws Exception {
+        WeakReference<TestExtensionPoint> extension = new WeakReference<>(executor.submit(this::getExtension).get());
+
+        pluginManager.stopPlugin("plugin1");
+
+        // the thread of the executor is still alive
+        for (int i = 0; i < 10 && extension.get() != null; i++) {
+            System.gc();
+            Thread.sleep(50);
+        }
+        assertNull(extension.get());
+    }
+
+    @Test
+    public void terminatedThreadReleasesItsThreadScopedExtensions() throws Exception {
+        WeakReference<TestExtensionPoint> extension = new WeakReference<>(executor.submit(this::getExtension).get());
+
+        executor.shutdown();
+        executor.awaitTermination(10, TimeUnit.SECONDS);
+
+        // the plugin is still started
+        for (int i = 0; i < 10 && extension.get() != null; i++) {
+            System.gc();
+            Thread.sleep(50);
+        }
+        assertNull(extension.get());
+    }
+
+    @Test
+    public void startedPluginHasNewThreadScopedExtensions() throws Exception {
+        TestExtensionPoint extension = executor.submit(this::getExtension).get();
+
+        pluginManager.stopPlugin("plugin1");
+        pluginManager.startPlugin("plugin1");
+
+        assertNotSame(extension, executor.submit(this::getExtension).get());
+    }
+
+    private TestExtensionPoint getExtension() {
+        return pluginManager.getExtensions(TestExtensionPoint.class).get(0);
+    }
+
+}
@@ -0,0 +1,82 @@
+/*
+ * Copyright (C) 2012-present the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.pf4j.spring;
+
+import org.junit.Before;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+import org.pf4j.test.plugin.TestExtension;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.core.type.classreading.MetadataReader;
+import org.springframework.core.type.classreading.MetadataReaderFactory;
+
+import static org.junit.Assert.assertNotSame;
+import static org.junit.Assert.assertSame;
+
+public class SharedMetadataReaderFactoryTest {
+
+    @Rule
+    public TemporaryFolder pluginsRoot = new TemporaryFolder();
+
+    private SpringPluginManager pluginManager;
+
+    @Before
+    public void setUp() {
+        TestPlugins.create(pluginsRoot.getRoot().toPath(), "plugin1");
+        TestPlugins.create(pluginsRoot.getRoot().toPath(), "plugin2");
+
+        pluginManager = new SpringPluginManager(pluginsRoot.getRoot().toPath());
+        pluginManager.loadPlugins();
+    }
+
+    @Test
+    public void applicationClassesAreSharedByThePlugins() throws Exception {
+        MetadataReaderFactory factory1 = createMetadataReaderFactory("plugin1");
+        MetadataReaderFactory factory2 = createMetadataReaderFactory("plugin2");
+
+        for (String className : new String[] { TestExtensionPoint.class.getName(), Configuration.class.getName() }) {
+            assertSame(factory1.getMetadataReader(className), factory2.getMetadataReader(className));
+        }
+    }
+
+    @Test
+    public void pluginClassesAreCachedPerPlugin() throws Exception {
+        String className = TestExtension.class.getName();
+        MetadataReader metadataReader = createMetadataReaderFactory("plugin1").getMetadataReader(className);
+
+        assertSame(metadataReader, createMetadataReaderFactory("plugin1").getMetadataReader(className));
+        assertNotSame(metadataReader, createMetadataReaderFactory("plugin2").getMetadataReader(className));
+    }
+
+    @Test
+    public void unloadEvictsThePluginClasses() throws Exception {
+        ClassLoader classLoader = pluginManager.getPlugin("plugin1").getPluginClassLoader();
+        String className = TestExtension.class.getName();
+        MetadataReader metadataReader = pluginManager.createMetadataReaderFactory(classLoader).getMetadataReader(className);
+        MetadataReader applicationMetadataReader = createMetadataReaderFactory("plugin2").getMetadataReader(TestExtensionPoint.class.getName());
+
+        pluginManager.unloadPlugin("plugin1");
+
+        assertNotSame(metadataReader, pluginManager.createMetadataReaderFactory(classLoader).getMetadataReader(className));
+        assertSame(applicationMetadataReader, createMetadataReaderFactory("plugin2").getMetadataReader(TestExtensionPoint.class.getName()));
+    }
+
+    private MetadataReaderFactory createMetadataReaderFactory(String pluginId) {
+        return pluginManager.createMetadataReaderFactory(pluginManager.getPlugin(pluginId).getPluginClassLoader());
+    }
+
+}
@@ -0,0 +1,187 @@
+/*
+ * Copyright (C) 2012-present the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.pf4j.spring;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+import org.pf4j.ExtensionFactory;
+import org.pf4j.test.plugin.OtherTestExtension;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CyclicBarrier;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNotSame;
+import static org.junit.Assert.assertSame;
+
+public class SingletonSpringExtensionFactoryTest {
+
+    private static final int THREADS = 16;
+
+    @Rule
+    public TemporaryFolder pluginsRoot = new TemporaryFolder();
+
+    private SpringPluginManager pluginManager;
+    private ExecutorService executor;
+
+    @Before
+    public void setUp() {
+        pluginManager = new SpringPluginManager(pluginsRoot.getRoot().toPath());
+        executor = Executors.newFixedThreadPool(THREADS);
+        SlowExtension.instances.set(0);
+    }
+
+    @After
+    public void tearDown() {
+        executor.shutdownNow();
+    }
+
+    @Test
+    public void concurrentCreateReturnsOneInstance() throws Exception {
+        SingletonSpringExtensionFactory extensionFactory = new SingletonSpringExtensionFactory(pluginManager);
+
+        for (Object extension : createConcurrently(extensionFactory, SlowExtension.class)) {
+            assertSame(extensionFactory.create(SlowExtension.class), extension);
+        }
+        assertEquals(1, SlowExtension.instances.get());
+        assertEquals(1, extensionFactory.getCacheSize(null));
+    }
+
+    @Test
+    public void onlyTheGivenClassesAreSingletons() throws Exception {
+        SingletonSpringExtensionFactory extensionFactory = new SingletonSpringExtensionFactory(pluginManager, Object.class.getName());
+
+        createConcurrently(extensionFactory, SlowExtension.class);
+        assertEquals(THREADS, SlowExtension.instances.get());
+        assertNotSame(extensionFactory.create(SlowExtension.class), extensionFactory.create(SlowExtension.class));
+        assertEquals(0, extensionFactory.getCacheSize(null));
+    }
+
+    @Test
+    public void stopEvictsTheSingletonsOfThePlugin() {
+        TestPlugins.create(pluginsRoot.getRoot().toPath(), "plugin1");
+        SpringPluginManager pluginManager = createSingletonPluginManager();
+        SingletonSpringExtensionFactory extensionFactory = (SingletonSpringExtensionFactory) pluginManager.getExtensionFactory();
+        pluginManager.loadPlugins();
+        pluginManager.startPlugins();
+
+        TestExtensionPoint extension = pluginManager.getExtensions(TestExtensionPoint.class).get(0);
+        assertSame(extension, pluginManager.getExtensions(TestExtensionPoint.class).get(0));
+        assertEquals(1, extensionFactory.getCacheSize("plugin1"));
+
+        pluginManager.stopPlugin("plugin1");
+        assertEquals(0, extensionFactory.getCacheSize("plugin1"));
+
+        pluginManager.startPlugin("plugin1");
+        assertNotSame(extension, pluginManager.getExtensions(TestExtensionPoint.class).get(0));
+        assertEquals(1, extensionFactory.getCacheSize("plugin1"));
+    }
+
+    @Test
+    public void unloadEvictsTheSingletonsOfThePlugin() {
+        TestPlugins.create(pluginsRoot.getRoot().toPath(), "plugin1");
+        TestPlugins.create(pluginsRoot.getRoot().toPath(), "plugin2");
+        SpringPluginManager pluginManager = createSingletonPluginManager();
+        SingletonSpringExtensionFactory extensionFactory = (SingletonSpringExtensionFactory) pluginManager.getExtensionFactory();
+        pluginManager.loadPlugins();
+        pluginManager.startPlugins();
+
+        assertEquals(2, pluginManager.getExtensions(TestExtensionPoint.class).size());
+        assertEquals(1, extensionFactory.getCacheSize("plugin1"));
+        assertEquals(1, extensionFactory.getCacheSize("plugin2"));
+
+        pluginManager.unloadPlugin("plugin1");
+        assertEquals(0, extensionFactory.getCacheSize("plugin1"));
+        assertEquals(1, extensionFactory.getCacheSize("plugin2"));
+    }
+
+    @Test
+    public void singletonCreatedAfterTheStopOfItsPluginIsNotCached() throws Exception {
+        // as a creation concurrent with the stop, that adds the singletons of the plugin after their eviction
+        TestPlugins.create(pluginsRoot.getRoot().toPath(), "plugin1", OtherTestExtension.class);
+        SpringPluginManager pluginManager = new SpringPluginManager(pluginsRoot.getRoot().toPath()) {
+
+            @Override
+            protected ExtensionFactory createExtensionFactory() {
+                // the extension is created without the (closed) context of the plugin
+                return new SingletonSpringExtensionFactory(this, false);
+            }
+
+        };
+        SingletonSpringExtensionFactory extensionFactory = (SingletonSpringExtensionFactory) pluginManager.getExtensionFactory();
+        pluginManager.loadPlugins();
+        pluginManager.startPlugins();
+        Class<?> extensionClass = pluginManager.getPluginClassLoader("plugin1").loadClass(OtherTestExtension.class.getName());
+
+        pluginManager.stopPlugin("plugin1");
+        extensionFactory.create(extensionClass);
+        assertEquals(0, extensionFactory.getCacheSize("plugin1"));
+
+        pluginManager.startPlugin("plugin1");
+        extensionFactory.create(extensionClass);
+        assertEquals(1, extensionFactory.getCacheSize("plugin1"));
+    }
+
+    private SpringPluginManager createSingletonPluginManager() {
+        return new SpringPluginManager(pluginsRoot.getRoot().toPath()) {
+
+            @Override
+            protected ExtensionFactory createExtensionFactory() {
+                return new SingletonSpringExtensionFactory(this);
+            }
+
+        };
+    }
+
+    private List<Object> createConcurrently(SpringExtensionFactory extensionFactory, Class<?> extensionClass) throws Exception {
+        CyclicBarrier barrier = new CyclicBarrier(THREADS);
+        List<Future<Object>> futures = new ArrayList<>();
+        for (int i = 0; i < THREADS; i++) {
+            futures.add(executor.submit(() -> {
+                barrier.await();
+                return extensionFactory.create(extensionClass);
+            }));
+        }
+
+        List<Object> extensions = new ArrayList<>();
+        for (Future<Object> future : futures) {
+            extensions.add(future.get());
+        }
+
+        return extensions;
+    }
+
+    public static class SlowExtension {
+
+        static final AtomicInteger instances = new AtomicInteger();
+
+        public SlowExtension() throws InterruptedException {
+            instances.incrementAndGet();
+            // widens the window in which the other threads request the same singleton
+            Thread.sleep(20);
+        }
+
+    }
+
+}
@@ -0,0 +1,132 @@
+/*
+ * Copyright (C) 2012-present the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.pf4j.spring;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+import org.pf4j.PluginWrapper;
+import org.pf4j.test.plugin.TestExtension;
+import org.springframework.context.ApplicationContext;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNotNull;
+
+public class SpringExtensionFactoryTest {
+
+    @Rule
+    public TemporaryFolder pluginsRoot = new TemporaryFolder();
+
+    private SpringPluginManager pluginManager;
+    private final List<Boolean> createdWithSpring = Collections.synchronizedList(new ArrayList<>());
+    private final Map<Class<?>, Integer> pluginLookups = new ConcurrentHashMap<>();
+
+    @Before
+    public void setUp() {
+        TestPlugins.create(pluginsRoot.getRoot().toPath(), "plugin1", TestExtension.class);
+        TestPlugins.create(pluginsRoot.getRoot().toPath(), "plugin2", TestExtension.class);
+
+        pluginManager = new SpringPluginManager(pluginsRoot.getRoot().toPath()) {
+
+            @Override
+            public PluginWrapper whichPlugin(Class<?> clazz) {
+                pluginLookups.merge(clazz, 1, Integer::sum);
+                return super.whichPlugin(clazz);
+            }
+
+        };
+        pluginManager.setMetrics(new SpringPluginMetrics() {
+
+            @Override
+            public void extensionCreated(Class<?> extensionClass, boolean withSpring, long durationNanos) {
+                createdWithSpring.add(withSpring);
+            }
+
+        });
+        pluginManager.loadPlugins();
+        pluginManager.startPlugins();
+    }
+
+    @After
+    public void tearDown() {
+        pluginManager.stopPlugins();
+    }
+
+    @Test
+    public void extensionCreatedIsMeasuredWithThePathTaken() throws Exception {
+        Class<?> extensionClass = pluginManager.getPluginClassLoader("plugin1").loadClass(TestExtension.class.getName());
+        CountingSpringExtensionFactory autowiringFactory = new CountingSpringExtensionFactory(pluginManager, true);
+        CountingSpringExtensionFactory factory = new CountingSpringExtensionFactory(pluginManager, false);
+
+        autowiringFactory.create(extensionClass);
+        factory.create(extensionClass);
+
+        assertEquals(List.of(true, false), createdWithSpring);
+        // the metric doesn't resolve the application context again
+        assertEquals(1, autowiringFactory.applicationContextLookups.get());
+        assertEquals(0, factory.applicationContextLookups.get());
+    }
+
+    @Test
+    public void stateChangeOfAPluginDiscardsOnlyItsResolvedApplicationContext() throws Exception {
+        Class<?> extensionClass = pluginManager.getPluginClassLoader("plugin1").loadClass(TestExtension.class.getName());
+        Class<?> otherExtensionClass = pluginManager.getPluginClassLoader("plugin2").loadClass(TestExtension.class.getName());
+        SpringExtensionFactory factory = new SpringExtensionFactory(pluginManager);
+
+        factory.create(extensionClass);
+        factory.create(extensionClass);
+        factory.create(otherExtensionClass);
+        assertEquals(Integer.valueOf(1), pluginLookups.get(extensionClass));
+        assertEquals(Integer.valueOf(1), pluginLookups.get(otherExtensionClass));
+
+        // the closed context of the stopped plugin is not used after its restart
+        pluginManager.stopPlugin("plugin1");
+        pluginManager.startPlugin("plugin1");
+        TestExtensionPoint extension = (TestExtensionPoint) factory.create(extensionClass);
+        factory.create(otherExtensionClass);
+
+        assertEquals(Integer.valueOf(2), pluginLookups.get(extensionClass));
+        assertEquals(Integer.valueOf(1), pluginLookups.get(otherExtensionClass));
+        assertNotNull(extension.getMessage());
+    }
+
+    static class CountingSpringExtensionFactory extends SpringExtensionFactory {
+
+        final AtomicInteger applicationContextLookups = new AtomicInteger();
+
+        CountingSpringExtensionFactory(SpringPluginManager pluginManager, boolean autowire) {
+            super(pluginManager, autowire);
+        }
+
+        @Override
+        protected <T> Optional<ApplicationContext> getApplicationContextBy(Class<T> extensionClass) {
+            applicationContextLookups.incrementAndGet();
+            return super.getApplicationContextBy(extensionClass);
+        }
+
+    }
+
+}
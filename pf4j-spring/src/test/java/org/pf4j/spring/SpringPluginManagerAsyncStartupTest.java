@@ -0,0 +1,270 @@
+/*
+ * Copyright (C) 2012-present the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.pf4j.spring;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+import org.pf4j.PluginState;
+import org.pf4j.PluginWrapper;
+import org.pf4j.test.plugin.OtherTestExtension;
+import org.pf4j.test.plugin.TestExtension;
+import org.springframework.beans.factory.support.AbstractAutowireCapableBeanFactory;
+import org.springframework.context.ApplicationEvent;
+import org.springframework.context.ApplicationListener;
+import org.springframework.context.annotation.AnnotationConfigApplicationContext;
+import org.springframework.context.event.EventListener;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+public class SpringPluginManagerAsyncStartupTest {
+
+    @Rule
+    public TemporaryFolder pluginsRoot = new TemporaryFolder();
+
+    private AnnotationConfigApplicationContext applicationContext;
+    private SpringPluginManager pluginManager;
+    private final List<ApplicationEvent> events = Collections.synchronizedList(new ArrayList<>());
+
+    @Before
+    public void setUp() {
+        applicationContext = new AnnotationConfigApplicationContext();
+        applicationContext.refresh();
+        applicationContext.addApplicationListener((ApplicationListener<ApplicationEvent>) event -> {
+            if (event instanceof PluginContextReadyEvent || event instanceof PluginExtensionsRegisteredEvent) {
+                events.add(event);
+            }
+        });
+
+        pluginManager = new SpringPluginManager(pluginsRoot.getRoot().toPath());
+        pluginManager.setApplicationContext(applicationContext);
+        pluginManager.setAsyncStartup(true);
+    }
+
+    @After
+    public void tearDown() {
+        TestPlugins.setContextCreationHook(null);
+        pluginManager.stopPlugins();
+        applicationContext.close();
+    }
+
+    @Test
+    public void extensionsAreHiddenUntilThePluginIsReady() throws Exception {
+        TestPlugins.create(pluginsRoot.getRoot().toPath(), "plugin1", TestExtension.class);
+        CountDownLatch contextCreation = new CountDownLatch(1);
+        TestPlugins.setContextCreationHook(pluginId -> await(contextCreation));
+
+        pluginManager.init();
+
+        CompletableFuture<PluginWrapper> readiness = pluginManager.whenPluginReady("plugin1");
+        assertFalse(readiness.isDone());
+        assertTrue(pluginManager.getExtensions(TestExtensionPoint.class).isEmpty());
+        assertTrue(pluginManager.findExtensions(TestExtensionPoint.class).isEmpty());
+        assertFalse(applicationContext.containsBean(TestExtension.class.getName()));
+
+        contextCreation.countDown();
+
+        assertSame(pluginManager.getPlugin("plugin1"), readiness.get(10, TimeUnit.SECONDS));
+        assertEquals(1, pluginManager.getExtensions(TestExtensionPoint.class).size());
+        assertTrue(applicationContext.containsBean(TestExtension.class.getName()));
+    }
+
+    @Test
+    public void eventsArePublishedForEachPlugin() throws Exception {
+        TestPlugins.create(pluginsRoot.getRoot().toPath(), "plugin1", TestExtension.class);
+        TestPlugins.create(pluginsRoot.getRoot().toPath(), "plugin2", OtherTestExtension.class);
+
+        pluginManager.init();
+        pluginManager.whenPluginsReady().get(10, TimeUnit.SECONDS);
+
+        assertEquals(4, events.size());
+        assertEvents("plugin1", TestExtension.class.getName());
+        assertEvents("plugin2", OtherTestExtension.class.getName());
+    }
+
+    @Test
+    public void pluginThatCannotStartStaysHidden() throws Exception {
+        TestPlugins.create(pluginsRoot.getRoot().toPath(), "plugin1", TestExtension.class);
+        TestPlugins.create(pluginsRoot.getRoot().toPath(), "plugin2", OtherTestExtension.class);
+        TestPlugins.setContextCreationHook(pluginId -> {
+            if ("plugin1".equals(pluginId)) {
+                throw new IllegalStateException("Cannot create the application context");
+            }
+        });
+
+        pluginManager.init();
+
+        pluginManager.whenPluginReady("plugin2").get(10, TimeUnit.SECONDS);
+        try {
+            pluginManager.whenPluginReady("plugin1").get(10, TimeUnit.SECONDS);
+            fail("Plugin 'plugin1' should not be ready");
+        } catch (ExecutionException e) {
+            // expected
+        }
+        assertTrue(pluginManager.whenPluginsReady().isCompletedExceptionally());
+
+        List<TestExtensionPoint> extensions = pluginManager.getExtensions(TestExtensionPoint.class);
+        assertEquals(1, extensions.size());
+        assertEquals(OtherTestExtension.class.getName(), extensions.get(0).getClass().getName());
+        assertFalse(applicationContext.containsBean(TestExtension.class.getName()));
+        assertTrue(applicationContext.containsBean(OtherTestExtension.class.getName()));
+    }
+
+    @Test
+    public void pluginStoppedDuringTheStartupIsNotRegistered() throws Exception {
+        TestPlugins.create(pluginsRoot.getRoot().toPath(), "plugin1", OtherTestExtension.class);
+        CountDownLatch injection = new CountDownLatch(1);
+        pluginManager = new SpringPluginManager(pluginsRoot.getRoot().toPath()) {
+
+            @Override
+            protected ExtensionsInjector createExtensionsInjector(AbstractAutowireCapableBeanFactory beanFactory) {
+                return new ExtensionsInjector(this, beanFactory) {
+
+                    @Override
+                    public void injectExtensions(PluginWrapper plugin) {
+                        if ("pf4j-spring-startup".equals(Thread.currentThread().getName())) {
+                            // the plugin is stopped, and its extensions are ejected, after the check of its state
+                            injection.countDown();
+                            awaitState(plugin, PluginState.STOPPED);
+                            while (whenPluginReady(plugin.getPluginId()) != null) {
+                                Thread.yield();
+                            }
+                        }
+                        super.injectExtensions(plugin);
+                    }
+
+                };
+            }
+
+        };
+        pluginManager.setApplicationContext(applicationContext);
+        pluginManager.setAsyncStartup(true);
+
+        pluginManager.init();
+        CompletableFuture<PluginWrapper> readiness = pluginManager.whenPluginReady("plugin1");
+        await(injection);
+
+        CompletableFuture<PluginState> stop = CompletableFuture.supplyAsync(() -> pluginManager.stopPlugin("plugin1"));
+        assertEquals(PluginState.STOPPED, stop.get(10, TimeUnit.SECONDS));
+        try {
+            readiness.get(10, TimeUnit.SECONDS);
+            fail("Plugin 'plugin1' should not be ready");
+        } catch (ExecutionException e) {
+            // expected
+        }
+        assertFalse(applicationContext.containsBean(OtherTestExtension.class.getName()));
+        assertTrue(pluginManager.getExtensions(TestExtensionPoint.class).isEmpty());
+        assertNull(pluginManager.whenPluginReady("plugin1"));
+    }
+
+    @Test
+    public void eventsPublishedDuringTheRefreshOfTheHostReachItsEventListeners() {
+        TestPlugins.create(pluginsRoot.getRoot().toPath(), "plugin1", TestExtension.class);
+        // the lazy injection doesn't register singletons, so the refresh can wait for the plugins
+        pluginManager.setInjectionMode(InjectionMode.LAZY);
+        AnnotationConfigApplicationContext hostApplicationContext = new AnnotationConfigApplicationContext();
+        hostApplicationContext.registerBean("pluginManager", SpringPluginManager.class, () -> pluginManager);
+        // the plugins are ready before the @EventListener methods are registered, at the end of the refresh
+        hostApplicationContext.registerBean("pluginsReady", Object.class, () -> pluginManager.whenPluginsReady().join(),
+            beanDefinition -> beanDefinition.setDependsOn("pluginManager"));
+        hostApplicationContext.register(PluginEventsListener.class);
+        try {
+            hostApplicationContext.refresh();
+
+            List<ApplicationEvent> receivedEvents = hostApplicationContext.getBean(PluginEventsListener.class).events;
+            assertEquals(2, receivedEvents.size());
+            assertTrue(receivedEvents.get(0) instanceof PluginContextReadyEvent);
+            assertTrue(receivedEvents.get(1) instanceof PluginExtensionsRegisteredEvent);
+        } finally {
+            pluginManager.stopPlugins();
+            hostApplicationContext.close();
+        }
+    }
+
+    private void assertEvents(String pluginId, String extensionClassName) {
+        int contextReady = -1;
+        int extensionsRegistered = -1;
+        synchronized (events) {
+            for (int i = 0; i < events.size(); i++) {
+                ApplicationEvent event = events.get(i);
+                if (event instanceof PluginContextReadyEvent && ((PluginContextReadyEvent) event).getPlugin().getPluginId().equals(pluginId)) {
+                    contextReady = i;
+                    SpringPlugin plugin = (SpringPlugin) ((PluginContextReadyEvent) event).getPlugin().getPlugin();
+                    assertSame(plugin.getApplicationContext(), ((PluginContextReadyEvent) event).getPluginApplicationContext());
+                } else if (event instanceof PluginExtensionsRegisteredEvent && ((PluginExtensionsRegisteredEvent) event).getPlugin().getPluginId().equals(pluginId)) {
+                    extensionsRegistered = i;
+                    assertEquals(Collections.singleton(extensionClassName), ((PluginExtensionsRegisteredEvent) event).getBeanNames());
+                }
+            }
+        }
+
+        assertTrue(pluginId, contextReady >= 0);
+        assertTrue(pluginId, extensionsRegistered > contextReady);
+    }
+
+    private static void awaitState(PluginWrapper plugin, PluginState pluginState) {
+        long deadline = System.nanoTime() + TimeUnit.SECONDS.toNanos(10);
+        while (plugin.getPluginState() != pluginState) {
+            if (System.nanoTime() > deadline) {
+                throw new IllegalStateException("Timeout");
+            }
+            Thread.yield();
+        }
+    }
+
+    private static void await(CountDownLatch latch) {
+        try {
+            if (!latch.await(10, TimeUnit.SECONDS)) {
+                throw new IllegalStateException("Timeout");
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new IllegalStateException(e);
+        }
+    }
+
+    public static class PluginEventsListener {
+
+        final List<ApplicationEvent> events = Collections.synchronizedList(new ArrayList<>());
+
+        @EventListener
+        public void onPluginContextReady(PluginContextReadyEvent event) {
+            events.add(event);
+        }
+
+        @EventListener
+        public void onPluginExtensionsRegistered(PluginExtensionsRegisteredEvent event) {
+            events.add(event);
+        }
+
+    }
+
+}
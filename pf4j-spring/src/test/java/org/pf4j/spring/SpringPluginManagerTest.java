@@ -0,0 +1,139 @@
+/*
+ * Copyright (C) 2012-present the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.pf4j.spring;
+
+import org.junit.Before;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+import org.pf4j.ExtensionFactory;
+import org.pf4j.test.plugin.OtherTestExtension;
+
+import java.util.List;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.locks.LockSupport;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNotSame;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+
+public class SpringPluginManagerTest {
+
+    @Rule
+    public TemporaryFolder pluginsRoot = new TemporaryFolder();
+
+    private SpringPluginManager pluginManager;
+
+    @Before
+    public void setUp() {
+        TestPlugins.create(pluginsRoot.getRoot().toPath(), "plugin1", OtherTestExtension.class);
+
+        pluginManager = new SpringPluginManager(pluginsRoot.getRoot().toPath()) {
+
+            @Override
+            protected ExtensionFactory createExtensionFactory() {
+                // the extension has no injection points, and a lookup concurrent with a stop doesn't use a closed context
+                return new SpringExtensionFactory(this, false) {
+
+                    @Override
+                    public <T> T create(Class<T> extensionClass) {
+                        // widens the window in which a lookup overlaps a state change
+                        LockSupport.parkNanos(TimeUnit.MILLISECONDS.toNanos(1));
+                        return super.create(extensionClass);
+                    }
+
+                };
+            }
+
+        };
+        pluginManager.loadPlugins();
+        pluginManager.startPlugins();
+    }
+
+    @Test
+    public void extensionsCacheReturnsTheSameList() {
+        assertNotSame(pluginManager.getExtensions(TestExtensionPoint.class), pluginManager.getExtensions(TestExtensionPoint.class));
+
+        pluginManager.setExtensionsCacheEnabled(true);
+        List<TestExtensionPoint> extensions = pluginManager.getExtensions(TestExtensionPoint.class);
+
+        assertEquals(1, extensions.size());
+        assertSame(extensions, pluginManager.getExtensions(TestExtensionPoint.class));
+    }
+
+    @Test(expected = UnsupportedOperationException.class)
+    public void extensionsCacheReturnsAnUnmodifiableList() {
+        pluginManager.setExtensionsCacheEnabled(true);
+
+        pluginManager.getExtensions(TestExtensionPoint.class).clear();
+    }
+
+    @Test
+    public void stateChangeInvalidatesTheExtensionsCache() {
+        pluginManager.setExtensionsCacheEnabled(true);
+        List<TestExtensionPoint> extensions = pluginManager.getExtensions(TestExtensionPoint.class);
+
+        pluginManager.stopPlugin("plugin1");
+        assertTrue(pluginManager.getExtensions(TestExtensionPoint.class).isEmpty());
+
+        pluginManager.startPlugin("plugin1");
+        List<TestExtensionPoint> newExtensions = pluginManager.getExtensions(TestExtensionPoint.class);
+        assertEquals(1, newExtensions.size());
+        assertNotSame(extensions.get(0), newExtensions.get(0));
+    }
+
+    @Test
+    public void concurrentLookupsDontCacheAStaleList() throws Exception {
+        pluginManager.setExtensionsCacheEnabled(true);
+        AtomicBoolean running = new AtomicBoolean(true);
+        ExecutorService executor = Executors.newFixedThreadPool(4);
+        try {
+            Future<?>[] lookups = new Future<?>[4];
+            for (int i = 0; i < lookups.length; i++) {
+                lookups[i] = executor.submit(() -> {
+                    while (running.get()) {
+                        pluginManager.getExtensions(TestExtensionPoint.class);
+                    }
+                });
+            }
+
+            for (int i = 0; i < 20; i++) {
+                pluginManager.stopPlugin("plugin1");
+                // the lookups started before the state change complete (and may try to cache their list)
+                LockSupport.parkNanos(TimeUnit.MILLISECONDS.toNanos(5));
+                assertTrue(pluginManager.getExtensions(TestExtensionPoint.class).isEmpty());
+
+                pluginManager.startPlugin("plugin1");
+                LockSupport.parkNanos(TimeUnit.MILLISECONDS.toNanos(5));
+                assertEquals(1, pluginManager.getExtensions(TestExtensionPoint.class).size());
+            }
+
+            running.set(false);
+            for (Future<?> lookup : lookups) {
+                lookup.get(10, TimeUnit.SECONDS);
+            }
+        } finally {
+            running.set(false);
+            executor.shutdownNow();
+        }
+    }
+
+}
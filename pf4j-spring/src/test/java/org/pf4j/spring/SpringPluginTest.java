@@ -0,0 +1,249 @@
+/*
+ * Copyright (C) 2012-present the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.pf4j.spring;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+import org.pf4j.ExtensionFactory;
+import org.springframework.context.ApplicationContext;
+import org.springframework.context.ConfigurableApplicationContext;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CyclicBarrier;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNotSame;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+
+public class SpringPluginTest {
+
+    private static final int THREADS = 4;
+
+    @Rule
+    public TemporaryFolder pluginsRoot = new TemporaryFolder();
+
+    private SpringPluginManager pluginManager;
+    private SpringPlugin plugin;
+    private ExecutorService executor;
+
+    @Before
+    public void setUp() {
+        TestPlugins.create(pluginsRoot.getRoot().toPath(), "plugin1");
+
+        pluginManager = new SpringPluginManager(pluginsRoot.getRoot().toPath()) {
+
+            @Override
+            protected ExtensionFactory createExtensionFactory() {
+                return new SingletonSpringExtensionFactory(this);
+            }
+
+        };
+        pluginManager.loadPlugins();
+        pluginManager.startPlugins();
+        plugin = (SpringPlugin) pluginManager.getPlugin("plugin1").getPlugin();
+        executor = Executors.newFixedThreadPool(THREADS);
+    }
+
+    @After
+    public void tearDown() {
+        TestPlugins.setContextCreationHook(null);
+        executor.shutdownNow();
+        pluginManager.stopPlugins();
+    }
+
+    @Test
+    public void concurrentGetCreatesOneContextPerLifecycle() throws Exception {
+        // widens the window in which the other threads request the context being created
+        TestPlugins.setContextCreationHook(pluginId -> sleep(20));
+
+        for (int lifecycle = 1; lifecycle <= 10; lifecycle++) {
+            CyclicBarrier barrier = new CyclicBarrier(THREADS);
+            List<Future<ApplicationContext>> futures = new ArrayList<>();
+            for (int i = 0; i < THREADS; i++) {
+                futures.add(executor.submit(() -> {
+                    barrier.await();
+                    return plugin.getApplicationContext();
+                }));
+            }
+
+            ApplicationContext applicationContext = futures.get(0).get(10, TimeUnit.SECONDS);
+            for (Future<ApplicationContext> future : futures) {
+                assertSame(applicationContext, future.get(10, TimeUnit.SECONDS));
+            }
+            assertEquals(lifecycle, plugin.getRefreshCount());
+
+            pluginManager.stopPlugin("plugin1");
+            assertFalse(((ConfigurableApplicationContext) applicationContext).isActive());
+            pluginManager.startPlugin("plugin1");
+        }
+    }
+
+    @Test
+    public void everyContextCreatedWhileStoppingIsClosed() throws Exception {
+        TestPlugins.setContextCreationHook(pluginId -> sleep(2));
+        Set<ApplicationContext> applicationContexts = Collections.newSetFromMap(new ConcurrentHashMap<>());
+        AtomicBoolean running = new AtomicBoolean(true);
+        List<Future<?>> readers = new ArrayList<>();
+        for (int i = 0; i < THREADS; i++) {
+            readers.add(executor.submit(() -> {
+                while (running.get()) {
+                    applicationContexts.add(plugin.getApplicationContext());
+                }
+                return null;
+            }));
+        }
+
+        for (int i = 0; i < 50; i++) {
+            pluginManager.stopPlugin("plugin1");
+            pluginManager.startPlugin("plugin1");
+        }
+        running.set(false);
+        for (Future<?> reader : readers) {
+            reader.get(10, TimeUnit.SECONDS);
+        }
+        pluginManager.stopPlugin("plugin1");
+
+        assertEquals(plugin.getRefreshCount(), applicationContexts.size());
+        for (ApplicationContext applicationContext : applicationContexts) {
+            assertFalse(((ConfigurableApplicationContext) applicationContext).isActive());
+        }
+    }
+
+    @Test
+    public void idleContextIsPassivated() throws Exception {
+        ApplicationContext applicationContext = plugin.getApplicationContext();
+        Thread.sleep(SpringPlugin.ACCESS_TIME_RESOLUTION_MILLIS + 50);
+
+        assertEquals(1, pluginManager.passivateIdleContexts(Duration.ofMillis(10)));
+        assertFalse(((ConfigurableApplicationContext) applicationContext).isActive());
+        assertFalse(plugin.isApplicationContextCreated());
+        assertEquals(1, plugin.getPassivationCount());
+
+        assertNotSame(applicationContext, plugin.getApplicationContext());
+        assertEquals(2, plugin.getRefreshCount());
+    }
+
+    @Test
+    public void contextAllocatedBytesAreMeasured() {
+        assertEquals(-1, plugin.getContextAllocatedBytes());
+
+        plugin.getApplicationContext();
+
+        // the context has at least a bean factory with the bean definitions of the plugin
+        assertTrue(plugin.getContextAllocatedBytes() > 10_000);
+    }
+
+    @Test
+    public void usedContextIsNotPassivated() {
+        plugin.getApplicationContext();
+
+        assertEquals(0, pluginManager.passivateIdleContexts(Duration.ofMinutes(1)));
+        assertFalse(plugin.passivateIfIdle(Duration.ZERO));
+        assertTrue(plugin.isApplicationContextCreated());
+        assertEquals(0, plugin.getPassivationCount());
+    }
+
+    @Test
+    public void contextReturnedConcurrentlyIsNotClosed() throws Exception {
+        // longer than the use of the context by a reader
+        Duration idleTimeout = Duration.ofMillis(20);
+        AtomicBoolean running = new AtomicBoolean(true);
+        List<Future<?>> readers = new ArrayList<>();
+        for (int i = 0; i < THREADS; i++) {
+            readers.add(executor.submit(() -> {
+                while (running.get()) {
+                    // fails if the context is closed
+                    plugin.getApplicationContext().getBean("testService");
+                    // sometimes the context becomes idle
+                    Thread.sleep(ThreadLocalRandom.current().nextLong(200));
+                }
+                return null;
+            }));
+        }
+
+        long end = System.nanoTime() + TimeUnit.SECONDS.toNanos(2);
+        while (System.nanoTime() < end) {
+            plugin.passivateIfIdle(idleTimeout);
+        }
+        running.set(false);
+        for (Future<?> reader : readers) {
+            reader.get(10, TimeUnit.SECONDS);
+        }
+
+        assertTrue(plugin.getPassivationCount() > 0);
+        assertEquals(plugin.getPassivationCount() + (plugin.isApplicationContextCreated() ? 1 : 0), plugin.getRefreshCount());
+    }
+
+    @Test
+    public void contextOfAHotSingletonIsNotPassivated() {
+        assertHotExtensionKeepsTheContext();
+    }
+
+    @Test
+    public void contextOfACachedExtensionIsNotPassivated() {
+        pluginManager.setExtensionsCacheEnabled(true);
+
+        assertHotExtensionKeepsTheContext();
+    }
+
+    /**
+     * The extension (autowired by the context of the plugin) is obtained from the plugin manager more often
+     * than the idle timeout, so the context is not passivated, until the extension is no longer used.
+     */
+    private void assertHotExtensionKeepsTheContext() {
+        Duration idleTimeout = Duration.ofMillis(50);
+        TestExtensionPoint extension = pluginManager.getExtensions(TestExtensionPoint.class).get(0);
+        assertTrue(plugin.isApplicationContextCreated());
+
+        long end = System.nanoTime() + idleTimeout.multipliedBy(6).toNanos();
+        while (System.nanoTime() < end) {
+            assertSame(extension, pluginManager.getExtensions(TestExtensionPoint.class).get(0));
+            assertEquals(0, pluginManager.passivateIdleContexts(idleTimeout));
+            sleep(5);
+        }
+        assertEquals(1, plugin.getRefreshCount());
+        assertEquals(0, plugin.getPassivationCount());
+
+        sleep(idleTimeout.toMillis() + 2 * SpringPlugin.ACCESS_TIME_RESOLUTION_MILLIS);
+        assertEquals(1, pluginManager.passivateIdleContexts(idleTimeout));
+        assertNotSame(extension, pluginManager.getExtensions(TestExtensionPoint.class).get(0));
+    }
+
+    private static void sleep(long millis) {
+        try {
+            Thread.sleep(millis);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+}
@@ -0,0 +1,106 @@
+/*
+ * Copyright (C) 2012-present the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.pf4j.spring;
+
+import org.pf4j.test.plugin.TestExtension;
+import org.pf4j.test.plugin.TestPlugin;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.net.URISyntaxException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.function.Consumer;
+import java.util.stream.Collectors;
+import java.util.stream.Stream;
+
+/**
+ * Creates plugins (directories loaded by PF4J's {@code DefaultPluginLoader}) with the compiled classes of
+ * the {@code org.pf4j.test.plugin} package, that PF4J loads with the class loader of each plugin.
+ * The extensions of a plugin are listed in its own {@code extensions.idx}, so they are not extensions of the application.
+ * <p>
+ * The class itself is loaded by the application class loader, so the test plugins call its hook.
+ */
+public final class TestPlugins {
+
+    private static final String PLUGIN_PACKAGE = TestPlugin.class.getPackage().getName();
+
+    private static volatile Consumer<String> contextCreationHook;
+
+    private TestPlugins() {
+    }
+
+    /**
+     * Sets the hook called with the plugin id before a test plugin creates its application context
+     * (for example to block or to fail the creation), or {@code null} for none.
+     */
+    static void setContextCreationHook(Consumer<String> hook) {
+        contextCreationHook = hook;
+    }
+
+    /**
+     * Called by the test plugins before the creation of their application context.
+     */
+    public static void beforeContextCreation(String pluginId) {
+        Consumer<String> hook = contextCreationHook;
+        if (hook != null) {
+            hook.accept(pluginId);
+        }
+    }
+
+    static Path create(Path pluginsRoot, String pluginId) {
+        return create(pluginsRoot, pluginId, TestExtension.class);
+    }
+
+    /**
+     * Creates a plugin whose {@code extensions.idx} lists the given extension classes, in the given order.
+     */
+    static Path create(Path pluginsRoot, String pluginId, Class<?>... extensionClasses) {
+        Path pluginDir = pluginsRoot.resolve(pluginId);
+        Path packagePath = Paths.get(PLUGIN_PACKAGE.replace('.', '/'));
+        try {
+            Path classesDir = pluginDir.resolve("classes");
+            Files.createDirectories(classesDir.resolve(packagePath));
+            try (Stream<Path> classFiles = Files.list(testClassesDir().resolve(packagePath))) {
+                for (Path classFile : (Iterable<Path>) classFiles::iterator) {
+                    Files.copy(classFile, classesDir.resolve(packagePath).resolve(classFile.getFileName()));
+                }
+            }
+
+            Files.createDirectories(classesDir.resolve("META-INF"));
+            Files.write(classesDir.resolve("META-INF/extensions.idx"), Stream.of(extensionClasses)
+                .map(Class::getName)
+                .collect(Collectors.toList()));
+            Files.write(pluginDir.resolve("plugin.properties"), ("plugin.id=" + pluginId + "\n"
+                + "plugin.class=" + TestPlugin.class.getName() + "\n"
+                + "plugin.version=1.0.0\n").getBytes());
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+
+        return pluginDir;
+    }
+
+    private static Path testClassesDir() {
+        try {
+            return Paths.get(TestPlugins.class.getProtectionDomain().getCodeSource().getLocation().toURI());
+        } catch (URISyntaxException e) {
+            throw new IllegalStateException(e);
+        }
+    }
+
+}
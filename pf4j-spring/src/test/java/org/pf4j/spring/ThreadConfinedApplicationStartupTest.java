@@ -0,0 +1,119 @@
+/*
+ * Copyright (C) 2012-present the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.pf4j.spring;
+
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+import org.pf4j.test.plugin.OtherTestExtension;
+import org.pf4j.test.plugin.SpecialTestExtension;
+import org.pf4j.test.plugin.TestExtension;
+import org.springframework.context.annotation.AnnotationConfigApplicationContext;
+import org.springframework.core.metrics.ApplicationStartup;
+import org.springframework.core.metrics.StartupStep;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+
+public class ThreadConfinedApplicationStartupTest {
+
+    @Rule
+    public TemporaryFolder pluginsRoot = new TemporaryFolder();
+
+    @Test
+    public void stepsOfOtherThreadsAreNotRecorded() {
+        RecordingApplicationStartup recordingStartup = new RecordingApplicationStartup();
+        ThreadConfinedApplicationStartup applicationStartup = new ThreadConfinedApplicationStartup(recordingStartup);
+
+        applicationStartup.start("owner").end();
+        CompletableFuture.runAsync(() -> applicationStartup.start("other").end()).join();
+
+        assertEquals(Collections.singletonList("owner"), recordingStartup.stepNames);
+    }
+
+    @Test
+    public void onlyStartupsThatAreNotThreadSafeAreWrapped() {
+        TracingApplicationStartup tracingStartup = new TracingApplicationStartup();
+        RecordingApplicationStartup recordingStartup = new RecordingApplicationStartup();
+
+        assertSame(tracingStartup, getApplicationStartup(tracingStartup));
+        assertSame(ApplicationStartup.DEFAULT, getApplicationStartup(ApplicationStartup.DEFAULT));
+        ApplicationStartup applicationStartup = getApplicationStartup(recordingStartup);
+        assertTrue(applicationStartup instanceof ThreadConfinedApplicationStartup);
+        assertSame(recordingStartup, ((ThreadConfinedApplicationStartup) applicationStartup).getDelegate());
+    }
+
+    @Test
+    public void parallelInjectionRecordsOnlyTheStepsOfTheInitThread() {
+        TestPlugins.create(pluginsRoot.getRoot().toPath(), "plugin1", TestExtension.class);
+        TestPlugins.create(pluginsRoot.getRoot().toPath(), "plugin2", SpecialTestExtension.class);
+        TestPlugins.create(pluginsRoot.getRoot().toPath(), "plugin3", OtherTestExtension.class);
+        RecordingApplicationStartup recordingStartup = new RecordingApplicationStartup();
+        AnnotationConfigApplicationContext applicationContext = new AnnotationConfigApplicationContext();
+        applicationContext.setApplicationStartup(recordingStartup);
+        applicationContext.refresh();
+        try {
+            SpringPluginManager pluginManager = new SpringPluginManager(pluginsRoot.getRoot().toPath());
+            pluginManager.setApplicationContext(applicationContext);
+            pluginManager.setInjectionMode(InjectionMode.PARALLEL);
+            pluginManager.init();
+
+            assertEquals(3, applicationContext.getBeanNamesForType(TestExtensionPoint.class).length);
+            assertTrue(recordingStartup.stepNames.toString(), recordingStartup.stepNames.contains("pf4j.extensions.inject"));
+            assertEquals(Collections.singleton(Thread.currentThread()), recordingStartup.threads);
+
+            pluginManager.stopPlugins();
+            pluginManager.unloadPlugins();
+        } finally {
+            applicationContext.close();
+        }
+    }
+
+    private ApplicationStartup getApplicationStartup(ApplicationStartup hostStartup) {
+        AnnotationConfigApplicationContext applicationContext = new AnnotationConfigApplicationContext();
+        applicationContext.setApplicationStartup(hostStartup);
+        SpringPluginManager pluginManager = new SpringPluginManager(pluginsRoot.getRoot().toPath());
+        pluginManager.setApplicationContext(applicationContext);
+
+        return pluginManager.getApplicationStartup();
+    }
+
+    /**
+     * Records the steps without any synchronization, like {@code FlightRecorderApplicationStartup}.
+     */
+    static class RecordingApplicationStartup implements ApplicationStartup {
+
+        final List<String> stepNames = new ArrayList<>();
+        final Set<Thread> threads = Collections.newSetFromMap(new ConcurrentHashMap<>());
+
+        @Override
+        public StartupStep start(String name) {
+            threads.add(Thread.currentThread());
+            stepNames.add(name);
+            return ApplicationStartup.DEFAULT.start(name);
+        }
+
+    }
+
+}
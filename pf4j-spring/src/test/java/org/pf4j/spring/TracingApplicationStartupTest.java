@@ -0,0 +1,82 @@
+/*
+ * Copyright (C) 2012-present the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.pf4j.spring;
+
+import org.junit.Test;
+import org.springframework.core.metrics.StartupStep;
+
+import java.io.StringWriter;
+import java.util.Locale;
+import java.util.concurrent.CompletableFuture;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+
+public class TracingApplicationStartupTest {
+
+    @Test
+    public void stepsAreNested() {
+        TracingApplicationStartup applicationStartup = new TracingApplicationStartup();
+
+        StartupStep parent = applicationStartup.start("parent");
+        StartupStep child = applicationStartup.start("child");
+        child.end();
+        StartupStep sibling = applicationStartup.start("sibling");
+        sibling.end();
+        parent.end();
+
+        assertNull(parent.getParentId());
+        assertEquals(Long.valueOf(parent.getId()), child.getParentId());
+        assertEquals(Long.valueOf(parent.getId()), sibling.getParentId());
+        assertNull(applicationStartup.start("next").getParentId());
+    }
+
+    @Test
+    public void stepEndedOnAnotherThreadIsNotTheParentOfTheNextSteps() {
+        TracingApplicationStartup applicationStartup = new TracingApplicationStartup();
+
+        StartupStep parent = applicationStartup.start("parent");
+        StartupStep step = applicationStartup.start("step");
+        CompletableFuture.runAsync(step::end).join();
+        StartupStep next = applicationStartup.start("next");
+
+        assertEquals(Long.valueOf(parent.getId()), next.getParentId());
+        assertEquals(1, applicationStartup.getStepCount());
+    }
+
+    @Test
+    public void traceIsWrittenWithAsciiDigits() throws Exception {
+        TracingApplicationStartup applicationStartup = new TracingApplicationStartup();
+        applicationStartup.start("step").tag("key", "value\u0001").end();
+
+        Locale defaultLocale = Locale.getDefault();
+        StringWriter writer = new StringWriter();
+        try {
+            // Arabic digits by default
+            Locale.setDefault(Locale.forLanguageTag("ar-EG"));
+            applicationStartup.writeTrace(writer);
+        } finally {
+            Locale.setDefault(defaultLocale);
+        }
+
+        String trace = writer.toString();
+        assertTrue(trace, trace.matches("(?s).*\"ts\":\\d+\\.\\d{3},\"dur\":\\d+\\.\\d{3},.*"));
+        assertTrue(trace, trace.contains("\"value\\u0001\""));
+        assertTrue(trace, trace.chars().allMatch(c -> c < 0x80));
+    }
+
+}
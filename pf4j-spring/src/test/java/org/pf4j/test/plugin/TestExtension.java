@@ -0,0 +1,33 @@
+/*
+ * Copyright (C) 2012-present the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.pf4j.test.plugin;
+
+import org.pf4j.Extension;
+import org.pf4j.spring.TestExtensionPoint;
+import org.springframework.beans.factory.annotation.Autowired;
+
+@Extension
+public class TestExtension implements TestExtensionPoint {
+
+    @Autowired
+    private TestService testService;
+
+    @Override
+    public String getMessage() {
+        return testService.getMessage();
+    }
+
+}
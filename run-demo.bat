@@ -14,6 +14,7 @@ REM copy artifacts to demo-dist folder
 xcopy demo\app\target\pf4j-spring-demo-app-*.zip demo-dist /s /i
 xcopy demo\plugins\plugin1\target\pf4j-spring-demo-plugin1-*.zip demo-dist\plugins /s
 xcopy demo\plugins\plugin2\target\pf4j-spring-demo-plugin2-*.zip demo-dist\plugins /s
+xcopy demo\plugins\plugin3\target\pf4j-spring-demo-plugin3-*.zip demo-dist\plugins /s
 xcopy demo\plugins\enabled.txt demo-dist\plugins /s
 xcopy demo\plugins\disabled.txt demo-dist\plugins /s
 
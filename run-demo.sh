@@ -15,6 +15,7 @@ mkdir -p demo-dist/plugins
 cp demo/app/target/pf4j-spring-demo-*.zip demo-dist/
 cp demo/plugins/plugin1/target/pf4j-spring-demo-plugin1-*.zip demo-dist/plugins/
 cp demo/plugins/plugin2/target/pf4j-spring-demo-plugin2-*.zip demo-dist/plugins/
+cp demo/plugins/plugin3/target/pf4j-spring-demo-plugin3-*.zip demo-dist/plugins/
 cp demo/plugins/enabled.txt demo-dist/plugins/
 cp demo/plugins/disabled.txt demo-dist/plugins/
 